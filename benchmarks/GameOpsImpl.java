@@ -0,0 +1,146 @@
+
+/**
+ * Gives the JMH benchmarks(package bench) access to the game classes. Loaded
+ * by name from EngineBenchmark
+ */
+
+import java.util.Random;
+
+import bench.GameOps;
+
+public class GameOpsImpl implements GameOps {
+    // Constants
+    private static final String GUESS_ORDER = "etaoinshrdlcumwfgypbvkjxqz";
+    private static final String[] GAME_WORDS = { "constellation", "mixed", "disaster", "prick", "amortize",
+            "wrench" };
+
+    private Word word;
+    private Player player;
+    private Game scoringGame;
+    private Word[] gameWords;
+    private Word[] corpusWords;
+    private CorpusIndex index;
+    private PackedWordStore packedStore;
+    private WordGraph graph;
+    // "disaster" after guessing e, t, a and o
+    private char[] filterPattern = "___a_te_".toCharArray();
+    private int filterMask = Word.letterBit('e') | Word.letterBit('t') | Word.letterBit('a') | Word.letterBit('o');
+
+    @Override
+    public void setUp() {
+        FileInterfacer.getCorpus();
+
+        word = new Word("constellation", 2.5);
+
+        gameWords = new Word[GAME_WORDS.length];
+        for (int i = 0; i < GAME_WORDS.length; i++) {
+            gameWords[i] = new Word(GAME_WORDS[i], 1.6 + i * 0.5);
+        }
+        player = new Player("bench", 0);
+        scoringGame = new Game(1, new Word[] { word }, 1, new Player[] { player }, 10);
+
+        corpusWords = CorpusIndex.allWords(FileInterfacer.getCorpus());
+        index = new CorpusIndex(corpusWords);
+        packedStore = new PackedWordStore(corpusWords);
+        graph = new WordGraph(corpusWords);
+        // timing filters that disagree would be meaningless
+        FilterCheck.check(corpusWords, 1000, new Random(1));
+    }
+
+    @Override
+    public Object getRandomWords(int difficulty, int num) {
+        return FileInterfacer.getRandomWords(difficulty, num);
+    }
+
+    @Override
+    public Object newWord(String word, double frequency) {
+        return new Word(word, frequency);
+    }
+
+    @Override
+    public String getDisplayString(int guessedMask) {
+        return word.getDisplayString(guessedMask);
+    }
+
+    @Override
+    public int getCharsRemaining(int guessedMask) {
+        return word.getCharsRemaining(guessedMask);
+    }
+
+    @Override
+    public int addChars(String letters) {
+        player.setupNewWord();
+        for (int i = 0; i < letters.length(); i++) {
+            player.addChar(letters.charAt(i));
+        }
+        return player.getGuessedMask();
+    }
+
+    @Override
+    public int calculateScore() {
+        return scoringGame.calculateScore(word, player, 1);
+    }
+
+    @Override
+    public int playGame() {
+        Player[] players = { new Player("a", 0), new Player("b", 1) };
+        Game game = new Game(1, gameWords.clone(), GAME_WORDS.length / 2, players, 8);
+        // each player guesses letters in English frequency order, starting over per word
+        int[] nextGuess = new int[players.length];
+        game.runGame((Player currentPlayer, Word currentWord) -> {
+            int id = currentPlayer.getPlayerId();
+            if (currentPlayer.getGuessedMask() == 0 && currentPlayer.getIncorrectGuesses() == 0) {
+                nextGuess[id] = 0;
+            }
+            return GUESS_ORDER.charAt(nextGuess[id]++ % GUESS_ORDER.length());
+        });
+        return game.getRounds();
+    }
+
+    @Override
+    public int filterCandidates(String kernel) {
+        switch (kernel) {
+            case "graph":
+                return graph.countMatches(filterPattern, filterMask);
+            case "bitset":
+                return CorpusIndex.cardinality(index.filter(filterPattern, filterMask));
+            case "vector":
+                return CorpusIndex
+                        .cardinality(packedStore.filter(filterPattern, filterMask, PackedWordStore.Kernel.VECTOR));
+            case "swar":
+                return CorpusIndex
+                        .cardinality(packedStore.filter(filterPattern, filterMask, PackedWordStore.Kernel.SWAR));
+            case "scalar":
+                return CorpusIndex
+                        .cardinality(packedStore.filter(filterPattern, filterMask, PackedWordStore.Kernel.SCALAR));
+            default:
+                return filterWords();
+        }
+    }
+
+    /**
+     * What filtering looks like without an index: every word's chars are copied
+     * and compared
+     * 
+     * @return
+     */
+    private int filterWords() {
+        int retVar = 0;
+        for (Word candidate : corpusWords) {
+            if (candidate.getWordLength(true) != filterPattern.length) {
+                continue;
+            }
+            char[] chars = candidate.getWordCharArray();
+            boolean fits = true;
+            for (int p = 0; p < chars.length && fits; p++) {
+                int bit = Word.letterBit(chars[p]);
+                fits = filterPattern[p] == CorpusIndex.HIDDEN ? bit != 0 && (filterMask & bit) == 0
+                        : chars[p] == filterPattern[p];
+            }
+            if (fits) {
+                retVar++;
+            }
+        }
+        return retVar;
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Baseline for the engine hot paths. Run with the GC profiler to see
+ * allocation rates: java -jar target/benchmarks.jar -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+    // c, o, t and a guessed in "constellation"
+    private static final int HALF_GUESSED_MASK = (1 << ('c' - 'a')) | (1 << ('o' - 'a')) | (1 << ('t' - 'a'))
+            | (1 << ('a' - 'a'));
+
+    private GameOps ops;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        ops = (GameOps) Class.forName("GameOpsImpl").getDeclaredConstructor().newInstance();
+        ops.setUp();
+    }
+
+    @Benchmark
+    public Object getRandomWords() {
+        // largest bucket
+        return ops.getRandomWords(2, 6);
+    }
+
+    @Benchmark
+    public Object newWord() {
+        return ops.newWord("constellation", 2.5);
+    }
+
+    @Benchmark
+    public String getDisplayString() {
+        return ops.getDisplayString(HALF_GUESSED_MASK);
+    }
+
+    @Benchmark
+    public int getCharsRemaining() {
+        return ops.getCharsRemaining(HALF_GUESSED_MASK);
+    }
+
+    @Benchmark
+    public int addChars() {
+        return ops.addChars("etaoinsh");
+    }
+
+    @Benchmark
+    public int calculateScore() {
+        return ops.calculateScore();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int playGame() {
+        return ops.playGame();
+    }
+}
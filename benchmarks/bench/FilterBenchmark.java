@@ -0,0 +1,44 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Candidate filtering against a revealed pattern over the whole corpus, one
+ * run per kernel: java -jar target/benchmarks.jar FilterBenchmark. The forks
+ * add jdk.incubator.vector, which PackedWordStore's vector kernel needs
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Thread)
+public class FilterBenchmark {
+    @Param({ "words", "scalar", "swar", "vector", "bitset", "graph" })
+    public String kernel;
+
+    private GameOps ops;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        ops = (GameOps) Class.forName("GameOpsImpl").getDeclaredConstructor().newInstance();
+        ops.setUp();
+    }
+
+    @Benchmark
+    public int filterCandidates() {
+        return ops.filterCandidates(kernel);
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+/**
+ * The game classes live in the default package, which JMH benchmarks cannot
+ * reference. GameOpsImpl(default package) implements this interface so the
+ * benchmarks can reach them through plain interface calls.
+ */
+public interface GameOps {
+
+    /**
+     * Loads the corpus and builds the fixtures used by the other methods
+     */
+    void setUp();
+
+    Object getRandomWords(int difficulty, int num);
+
+    Object newWord(String word, double frequency);
+
+    String getDisplayString(int guessedMask);
+
+    int getCharsRemaining(int guessedMask);
+
+    /**
+     * Starts a new word for the fixture player and adds every letter in letters
+     */
+    int addChars(String letters);
+
+    int calculateScore();
+
+    /**
+     * Plays a full two player game with bots and returns the number of rounds
+     */
+    int playGame();
+
+    /**
+     * Filters the corpus against a fixed pattern and returns how many words fit.
+     * kernel is "bitset"(CorpusIndex), "vector", "swar" or "scalar"
+     * (PackedWordStore), "graph"(WordGraph) or "words"(checking each Word's
+     * chars)
+     */
+    int filterCandidates(String kernel);
+}
@@ -1,63 +1,146 @@
 
 /**
- * Handles and parses all HTTP requests to the WordsAPI. 
- * Currently being used only to obtain a word's synonym,
- * which will be used for the hint feature 
+ * Handles and parses all HTTP requests to the WordsAPI.
+ * Currently being used only to obtain a word's synonyms and definitions,
+ * which will be used for the hint feature
  */
 
-//Autogenerated imports for HTTP requests 
+//Autogenerated imports for HTTP requests
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class APIInterfacer {
+    // Constants
+    private static final String DEFAULT_BASE_URL = "https://wordsapiv1.p.rapidapi.com/words/";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    // One client for every request so connections are pooled and reused
+    private static final HttpClient CLIENT = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+
+    // Can be pointed at a local stand-in server, see StubSynonymServer
+    private static volatile String baseUrl = System.getProperty("hangman.api.url", DEFAULT_BASE_URL);
+
+    /**
+     * Changes where requests are sent. The url must end with a slash, the word is
+     * appended to it
+     *
+     * @param url
+     */
+    public static void setBaseUrl(String url) {
+        baseUrl = url;
+    }
+
     /**
      * Returns the first synoym provdided by WordsAPI. Returns an empty string if
      * something goes wrong.
-     * 
+     *
      * @param word
      * @return
      */
     public static String getSimilar(String word) {
+        try {
+            return getSimilarAsync(word).join();
+        } catch (CompletionException e) {
+            // There could be no response, which is why failures are caught here
+            e.getCause().printStackTrace();
+        }
+        // something went wrong, returns an empty string
+        return "";
+    }
+
+    /**
+     * Same as getSimilar but does not block the calling thread. The future fails
+     * if the request could not be made
+     *
+     * @param word
+     * @return
+     */
+    public static CompletableFuture<String> getSimilarAsync(String word) {
+        return getSynonymsAsync(word, 1)
+                .thenApply((List<String> synonyms) -> synonyms.isEmpty() ? "" : synonyms.get(0));
+    }
+
+    /**
+     * Returns up to max synonyms of word, in the order WordsAPI lists them
+     *
+     * @param word
+     * @param max
+     * @return
+     */
+    public static CompletableFuture<List<String>> getSynonymsAsync(String word, int max) {
+        return requestList(word, "synonyms", null, max);
+    }
+
+    /**
+     * Returns up to max definitions of word
+     *
+     * @param word
+     * @param max
+     * @return
+     */
+    public static CompletableFuture<List<String>> getDefinitionsAsync(String word, int max) {
+        return requestList(word, "definitions", "definition", max);
+    }
+
+    /**
+     * Requests /words/{word}/{field} and reads the list named field from the body
+     * as it arrives. If member is set, the list holds objects and member is read
+     * from each. The rest of the body is discarded once the list is read. The
+     * future fails if the status is not 2xx
+     *
+     * @param word
+     * @param field
+     * @param member
+     * @param max
+     * @return
+     */
+    private static CompletableFuture<List<String>> requestList(String word, String field, String member, int max) {
         // Autogenerated code copied from RapidAPI endpoint tester
         HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://wordsapiv1.p.rapidapi.com/words/" + word + "/synonyms"))
+                .uri(URI.create(baseUrl + word + "/" + field))
+                .timeout(REQUEST_TIMEOUT)
                 .header("x-rapidapi-host", "wordsapiv1.p.rapidapi.com")
                 .header("x-rapidapi-key", "9JPje8RP94mshA1Xc1qoEiw1Ozd3p1cGJxfjsnxv00RWij2MII")
                 .method("GET", HttpRequest.BodyPublishers.noBody()).build();
-        HttpResponse<String> response;
-        try {
-            // There could be no response, which is why there is a try/catch here
-            response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-
-            // Parses response by finding the indices of brackets and returning the first
-            // element in the array, if it exists
-            String responseStr = response.body();
-            int leftBracket = responseStr.indexOf("[");
-            int rightBracket = responseStr.indexOf("]");
-
-            // first condition checks that synonym array from the response has an element,
-            // last two conditions should always be true but its there just in case
-            if (leftBracket + 1 != rightBracket && leftBracket != -1 && rightBracket != -1) {
-                int comma = responseStr.indexOf(",", leftBracket);
-
-                // if no comma, there is only one synonym returned
-                if (comma != -1) {
-                    return responseStr.substring(leftBracket + 2, comma - 1);
-                } else {
-                    return responseStr.substring(leftBracket + 2, rightBracket - 1);
-                }
+        GameEvents.HintLookup event = new GameEvents.HintLookup();
+        event.begin();
+        long start = GameMetrics.getDefault().startTimer();
+        // Parsing blocks on the stream, so it runs on the pool instead of the
+        // client's own threads
+        CompletableFuture<List<String>> results = CLIENT
+                .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApplyAsync((HttpResponse<InputStream> response) -> {
+                    try (InputStream body = response.body()) {
+                        // an error body(rate limited, bad key, server down) is not an empty list
+                        if (response.statusCode() < 200 || response.statusCode() > 299) {
+                            throw new IOException("HTTP " + response.statusCode() + " for " + word + "/" + field);
+                        }
+                        return member == null ? SynonymResponseParser.readStrings(body, field, max)
+                                : SynonymResponseParser.readMembers(body, field, member, max);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        results.whenComplete((List<String> list, Throwable error) -> {
+            GameMetrics.getDefault().recordHintRequest(start, error != null);
+            if (event.shouldCommit()) {
+                event.word = word;
+                event.field = field;
+                event.results = list == null ? 0 : list.size();
+                event.failed = error != null;
+                event.commit();
             }
-
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        // something went wrong, returns an empty string
-        return "";
+        });
+        return results;
     }
 
 }
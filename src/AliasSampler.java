@@ -0,0 +1,85 @@
+
+/**
+ * Draws indices with probability proportional to their weights in constant
+ * time per draw, using Vose's version of Walker's alias method. Building the
+ * tables takes time proportional to the number of weights.
+ */
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class AliasSampler {
+    private final double[] probability; // chance of keeping the column's own index
+    private final int[] alias; // index used when the column's own index is not kept
+
+    /**
+     * Weights must be non negative and at least one must be positive
+     * 
+     * @param weights
+     */
+    public AliasSampler(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight " + weight);
+            }
+            total += weight;
+        }
+        if (!(total > 0)) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+
+        probability = new double[n];
+        alias = new int[n];
+
+        // Scaled so the average column holds exactly 1
+        double[] scaled = new double[n];
+        ArrayDeque<Integer> small = new ArrayDeque<Integer>();
+        ArrayDeque<Integer> large = new ArrayDeque<Integer>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1) {
+                small.push(i);
+            } else {
+                large.push(i);
+            }
+        }
+
+        // Each small column is topped up by a large one
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small.push(more);
+            } else {
+                large.push(more);
+            }
+        }
+        // Whatever is left is 1 up to rounding error
+        while (!large.isEmpty()) {
+            probability[large.pop()] = 1;
+        }
+        while (!small.isEmpty()) {
+            probability[small.pop()] = 1;
+        }
+    }
+
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * Returns a random index, weighted by the weights given at construction
+     * 
+     * @return
+     */
+    public int next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+}
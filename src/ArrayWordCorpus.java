@@ -0,0 +1,37 @@
+
+/**
+ * Immutable WordCorpus backed by one array of parsed Word objects per
+ * difficulty. Built once and then shared by every game.
+ */
+
+public class ArrayWordCorpus implements WordCorpus {
+    private final Word[][] buckets;
+
+    /**
+     * Each element of buckets is one difficulty, easiest first. Arrays are copied
+     * so the corpus cannot be changed afterwards
+     * 
+     * @param buckets
+     */
+    public ArrayWordCorpus(Word[][] buckets) {
+        this.buckets = new Word[buckets.length][];
+        for (int i = 0; i < buckets.length; i++) {
+            this.buckets[i] = buckets[i].clone();
+        }
+    }
+
+    @Override
+    public int getNumDifficulties() {
+        return buckets.length;
+    }
+
+    @Override
+    public int size(int difficulty) {
+        return buckets[difficulty].length;
+    }
+
+    @Override
+    public Word getWord(int difficulty, int index) {
+        return buckets[difficulty][index];
+    }
+}
@@ -0,0 +1,52 @@
+
+/**
+ * Automated guesser for simulations and tests. Never repeats a letter: the
+ * player's guessed letters are skipped, so one bot can guess for any number of
+ * players and games at once
+ */
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class BotGuessSource implements GuessSource {
+    // Constants
+    private static final String GUESS_ORDER = "etaoinshrdlcumwfgypbvkjxqz";
+
+    public enum Strategy {
+        FREQUENCY, // most common English letters first
+        RANDOM // any letter not guessed yet
+    }
+
+    private final Strategy strategy;
+
+    public BotGuessSource(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public char nextGuess(Player player, Word word) {
+        int guessedMask = player.getGuessedMask();
+        if (strategy == Strategy.FREQUENCY) {
+            for (int i = 0; i < GUESS_ORDER.length(); i++) {
+                char c = GUESS_ORDER.charAt(i);
+                if ((guessedMask & Word.letterBit(c)) == 0) {
+                    return c;
+                }
+            }
+            return GUESS_ORDER.charAt(0);
+        }
+        int unguessed = ~guessedMask & ((1 << Word.NUM_LETTERS) - 1);
+        if (unguessed == 0) {
+            return 'a';
+        }
+        // picks the n-th unguessed letter
+        int n = ThreadLocalRandom.current().nextInt(Integer.bitCount(unguessed));
+        for (int i = 0; i < n; i++) {
+            unguessed &= unguessed - 1;
+        }
+        return (char) ('a' + Integer.numberOfTrailingZeros(unguessed));
+    }
+}
@@ -0,0 +1,42 @@
+
+/**
+ * The original scoring rules: less frequent words are worth more, letters
+ * guessed when few are left are worth more(they were not luck), and everything
+ * is multiplied by the difficulty. The frequency part is precomputed by every
+ * Word(see Word.getBaseScore) and the remaining letters part is a table, so
+ * scoring a guess has no division in it.
+ */
+
+public class ClassicScoring implements ScoringPolicy {
+    // Constants
+    public static final int SCORE_MULTIPLIER = 100;
+    public static final int GUESS_MULTIPLIER = 10;
+
+    public static final ClassicScoring DEFAULT = new ClassicScoring(SCORE_MULTIPLIER, GUESS_MULTIPLIER);
+
+    private final int scoreMultiplier;
+    private final int[] remainingBonus; // index is the number of letters remaining
+
+    /**
+     * Multipliers other than the defaults are for tuning, see Simulator. Base
+     * scores are only precomputed for SCORE_MULTIPLIER, any other value divides
+     * by the frequency again
+     * 
+     * @param scoreMultiplier
+     * @param guessMultiplier
+     */
+    public ClassicScoring(int scoreMultiplier, int guessMultiplier) {
+        this.scoreMultiplier = scoreMultiplier;
+        this.remainingBonus = new int[Word.MAX_LENGTH + 1];
+        for (int remaining = 1; remaining <= Word.MAX_LENGTH; remaining++) {
+            remainingBonus[remaining] = guessMultiplier / remaining;
+        }
+    }
+
+    @Override
+    public int scoreCorrectGuess(Word word, int lettersRemaining, int occurrences, int difficulty) {
+        int base = scoreMultiplier == Word.BASE_SCORE_MULTIPLIER ? word.getBaseScore()
+                : (int) (scoreMultiplier / word.getFrequency());
+        return (base + remainingBonus[lettersRemaining]) * (difficulty + 1);
+    }
+}
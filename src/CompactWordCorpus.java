@@ -0,0 +1,223 @@
+
+/**
+ * WordCorpus for very large dictionaries. The chars of every word live in one
+ * shared Latin-1 byte array, one byte per char, and each word is just an offset
+ * into it and a frequency in parallel primitive arrays. A Word is only created
+ * when asked for and is not kept, so the heap holds about 12 bytes plus the
+ * word's length per entry instead of a Word, String and arrays per entry.
+ *
+ * Built with a Builder, immutable afterwards.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CompactWordCorpus implements WordCorpus {
+    private final byte[] chars; // every word, back to back
+    private final int[] offsets; // word i is chars[offsets[i], offsets[i + 1])
+    private final double[] frequencies;
+    private final int[] bucketStarts; // bucket d holds words bucketStarts[d] to bucketStarts[d + 1] - 1
+
+    /**
+     * Collects words bucket by bucket. Buckets are added in order, easiest first
+     */
+    public static class Builder {
+        private byte[] chars = new byte[1024];
+        private int numChars;
+        private int[] offsets = new int[256];
+        private double[] frequencies = new double[256];
+        private int numWords;
+        private int[] bucketStarts = new int[8];
+        private int numBuckets;
+
+        /**
+         * Starts the next bucket, words added from now on go in it
+         * 
+         * @return
+         */
+        public Builder newBucket() {
+            if (numBuckets + 1 >= bucketStarts.length) {
+                bucketStarts = Arrays.copyOf(bucketStarts, 2 * bucketStarts.length);
+            }
+            bucketStarts[numBuckets++] = numWords;
+            return this;
+        }
+
+        /**
+         * Adds a word to the current bucket. Throws IllegalArgumentException for
+         * chars outside Latin-1 or words longer than Word.MAX_LENGTH
+         * 
+         * @param word
+         * @param frequency
+         * @return
+         */
+        public Builder add(CharSequence word, double frequency) {
+            if (numBuckets == 0) {
+                throw new IllegalStateException("Call newBucket before adding words");
+            }
+            int length = word.length();
+            if (length > Word.MAX_LENGTH) {
+                throw new IllegalArgumentException(
+                        "Words can have at most " + Word.MAX_LENGTH + " characters: " + word);
+            }
+            if (numChars + length > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(2 * chars.length, numChars + length));
+            }
+            for (int i = 0; i < length; i++) {
+                char c = word.charAt(i);
+                if (c > 0xFF) {
+                    throw new IllegalArgumentException("Only Latin-1 words can be stored compactly: " + word);
+                }
+                chars[numChars + i] = (byte) c;
+            }
+            if (numWords + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+                frequencies = Arrays.copyOf(frequencies, 2 * frequencies.length);
+            }
+            offsets[numWords] = numChars;
+            frequencies[numWords] = frequency;
+            numWords++;
+            numChars += length;
+            return this;
+        }
+
+        /**
+         * Returns the corpus. If sortBuckets, the words of each bucket are put in
+         * frequency order(then by word) like Word.compareTo, otherwise they keep
+         * the order they were added in
+         * 
+         * @param sortBuckets
+         * @return
+         */
+        public CompactWordCorpus build(boolean sortBuckets) {
+            offsets[numWords] = numChars;
+            bucketStarts[numBuckets] = numWords;
+            CompactWordCorpus corpus = new CompactWordCorpus(Arrays.copyOf(chars, numChars),
+                    Arrays.copyOf(offsets, numWords + 1), Arrays.copyOf(frequencies, numWords),
+                    Arrays.copyOf(bucketStarts, numBuckets + 1));
+            return sortBuckets ? corpus.sorted() : corpus;
+        }
+    }
+
+    private CompactWordCorpus(byte[] chars, int[] offsets, double[] frequencies, int[] bucketStarts) {
+        this.chars = chars;
+        this.offsets = offsets;
+        this.frequencies = frequencies;
+        this.bucketStarts = bucketStarts;
+    }
+
+    /**
+     * Copies any corpus into the compact form, bucket by bucket
+     * 
+     * @param corpus
+     * @return
+     */
+    public static CompactWordCorpus copyOf(WordCorpus corpus) {
+        Builder builder = new Builder();
+        for (int d = 0; d < corpus.getNumDifficulties(); d++) {
+            builder.newBucket();
+            for (int i = 0; i < corpus.size(d); i++) {
+                Word word = corpus.getWord(d, i);
+                builder.add(word.getWordString(), word.getFrequency());
+            }
+        }
+        return builder.build(false);
+    }
+
+    @Override
+    public int getNumDifficulties() {
+        return bucketStarts.length - 1;
+    }
+
+    @Override
+    public int size(int difficulty) {
+        return bucketStarts[difficulty + 1] - bucketStarts[difficulty];
+    }
+
+    @Override
+    public Word getWord(int difficulty, int index) {
+        int i = position(difficulty, index);
+        return new Word(new String(chars, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.ISO_8859_1),
+                frequencies[i]);
+    }
+
+    @Override
+    public double getFrequency(int difficulty, int index) {
+        return frequencies[position(difficulty, index)];
+    }
+
+    /**
+     * Returns the number of chars of the word at the given index
+     * 
+     * @param difficulty
+     * @param index
+     * @return
+     */
+    public int getLength(int difficulty, int index) {
+        int i = position(difficulty, index);
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Returns char p of the word at the given index, read straight from the
+     * shared array
+     * 
+     * @param difficulty
+     * @param index
+     * @param p
+     * @return
+     */
+    public char charAt(int difficulty, int index, int p) {
+        int i = position(difficulty, index);
+        if (p < 0 || p >= offsets[i + 1] - offsets[i]) {
+            throw new IndexOutOfBoundsException("No char " + p + " in word " + index);
+        }
+        return (char) (chars[offsets[i] + p] & 0xFF);
+    }
+
+    // Index into the parallel arrays of the word at index of difficulty
+    private int position(int difficulty, int index) {
+        if (index < 0 || index >= size(difficulty)) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for difficulty " + difficulty);
+        }
+        return bucketStarts[difficulty] + index;
+    }
+
+    /**
+     * Helper function for Builder.build. Returns a copy with every bucket in
+     * frequency order, then by word
+     * 
+     * @return
+     */
+    private CompactWordCorpus sorted() {
+        Integer[] order = new Integer[frequencies.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int d = 0; d < getNumDifficulties(); d++) {
+            Arrays.sort(order, bucketStarts[d], bucketStarts[d + 1], (Integer o1, Integer o2) -> {
+                int byFrequency = Double.compare(frequencies[o1], frequencies[o2]);
+                return byFrequency != 0 ? byFrequency : compareChars(o1, o2);
+            });
+        }
+        byte[] sortedChars = new byte[chars.length];
+        int[] sortedOffsets = new int[offsets.length];
+        double[] sortedFrequencies = new double[frequencies.length];
+        int numChars = 0;
+        for (int i = 0; i < order.length; i++) {
+            int from = order[i];
+            int length = offsets[from + 1] - offsets[from];
+            System.arraycopy(chars, offsets[from], sortedChars, numChars, length);
+            sortedOffsets[i] = numChars;
+            sortedFrequencies[i] = frequencies[from];
+            numChars += length;
+        }
+        sortedOffsets[order.length] = numChars;
+        return new CompactWordCorpus(sortedChars, sortedOffsets, sortedFrequencies, bucketStarts);
+    }
+
+    // Same order as String.compareTo, which Word.compareTo uses
+    private int compareChars(int i, int j) {
+        return Arrays.compareUnsigned(chars, offsets[i], offsets[i + 1], chars, offsets[j], offsets[j + 1]);
+    }
+}
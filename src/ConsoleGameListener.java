@@ -0,0 +1,107 @@
+
+/**
+ * Prints everything that happens in a Game to the console, the way the game
+ * has always been played
+ */
+
+public class ConsoleGameListener implements GameListener {
+    // Constants
+    private static final boolean DEBUG_MODE = true;
+
+    private final Game game;
+
+    public ConsoleGameListener(Game game) {
+        this.game = game;
+    }
+
+    @Override
+    public void onTurn(Player player, Word word) {
+        if (DEBUG_MODE) {
+            System.out.println(word.getWordString());
+        }
+
+        System.out.println(player.getDisplayString() + ", enter your guess: ");
+        // prints string with dashes
+        printBytes(player.getDisplayBuffer(), player.getDisplayLength());
+    }
+
+    @Override
+    public void onGuess(Player player, GuessResult result) {
+        char currentChar = result.getGuess();
+        Word currentWord = result.getWord();
+        switch (result.getOutcome()) {
+            case REPEATED:
+                System.out.println("Sorry " + player.getDisplayString() + ", you had entered " + currentChar
+                        + " previously. Skipping your turn!");
+                return;
+            case CORRECT:
+                System.out.println("Great job! the letter " + currentChar + " is in your word! +"
+                        + result.getScoreDelta());
+                printBytes(player.getDisplayBuffer(), player.getDisplayLength());
+                // prints all previously guessed chars
+                printBytes(player.getGuessedCharsBuffer(), player.getGuessedCharsLength());
+
+                if (DEBUG_MODE) {
+                    System.out.println("Remaining: " + player.getLettersRemaining());
+                }
+                if (result.isWordGuessed()) {
+                    System.out.println("Congrats on guessing " + currentWord.getWordString() + " correctly!");
+                }
+                break;
+            case INCORRECT:
+                System.out.println("Sorry " + player.getDisplayString() + ", the letter " + currentChar
+                        + " is not in the word");
+                System.out.println("You have " + result.getLivesRemaining() + " lives remaining");
+                // prints all previously guessed chars
+                printBytes(player.getGuessedCharsBuffer(), player.getGuessedCharsLength());
+
+                if (result.isWordLost()) {
+                    System.out.println("You have used up all of your guesses!");
+                    System.out.println("The word was " + currentWord.getWordString());
+                }
+                break;
+        }
+
+        if (result.isPlayerFinished()) {
+            System.out.println("You guessed " + player.getWordsGuessedCorrectly() + " out of "
+                    + game.getNumberOfWords() + " words correctly");
+            System.out.println("Your final score is " + player.getScore());
+        } else if (result.isWordDone()) {
+            System.out.println("You have to guess " + (game.getNumberOfWords() - player.getTotalWordsGuessed())
+                    + " more words!");
+            System.out.println("Your lives have reset to " + game.getLivesPerPlayer());
+            System.out.println("Your score is " + player.getScore());
+        }
+    }
+
+    @Override
+    public void onPlayerSkipped(Player player) {
+        System.out.println("Skipping player " + player.getDisplayString());
+    }
+
+    @Override
+    public void onRoundEnd(int round) {
+        System.out.println("End of round " + round + "\n");
+    }
+
+    @Override
+    public void onGameEnd(int rounds, Player[] standings) {
+        System.out.println("This game has concluded after " + rounds + " rounds.");
+        System.out.println("Final Scores: ");
+        for (Player player : standings) {
+            System.out.println("    " + player.getDisplayString() + ": " + player.getScore());
+        }
+    }
+
+    /**
+     * Prints a line from one of a player's reused render buffers without creating
+     * a String
+     * 
+     * @param buffer
+     * @param length
+     */
+    private static void printBytes(byte[] buffer, int length) {
+        System.out.write(buffer, 0, length);
+        System.out.println();
+    }
+}
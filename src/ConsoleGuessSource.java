@@ -0,0 +1,25 @@
+
+/**
+ * Reads guesses typed on the console, one per line. Only the first character of
+ * a line is used and blank lines are ignored
+ */
+
+import java.util.Scanner;
+
+public class ConsoleGuessSource implements GuessSource {
+    private final Scanner scanner;
+
+    public ConsoleGuessSource(Scanner scanner) {
+        this.scanner = scanner;
+    }
+
+    @Override
+    public char nextGuess(Player player, Word word) {
+        String readLine = scanner.nextLine();
+        while (readLine.isEmpty()) {
+            readLine = scanner.nextLine();
+        }
+        System.out.println("");
+        return readLine.charAt(0);
+    }
+}
@@ -0,0 +1,128 @@
+
+/**
+ * Converts the text data files into the single binary corpus file read by
+ * MappedWordCorpus. Run it again whenever a data file changes.
+ *
+ * Layout (all numbers big-endian):
+ * header: magic, version, number of buckets, source list position
+ * bucket table: per bucket, word count, offset table position, frequency table position
+ * per bucket: word count int offsets to each word, then word count doubles
+ * word data: each word is an unsigned short byte length followed by UTF-8 bytes
+ * source list: see describeSources, the data files the corpus was compiled from
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class CorpusCompiler {
+    // Constants shared with MappedWordCorpus
+    public static final int MAGIC = 0x48574331; // "HWC1"
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 16;
+    public static final int BUCKET_ENTRY_BYTES = 12;
+
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(args.length > 0 ? args[0] : FileInterfacer.BINARY_CORPUS_PATH);
+        // described before reading, so a file changed while compiling makes the corpus stale
+        byte[] sources = describeSources(FileInterfacer.getDataFiles());
+        WordCorpus corpus = FileInterfacer.loadTextCorpus();
+        write(corpus, sources, output);
+        System.out.println("Wrote " + Files.size(output) + " bytes to " + output);
+    }
+
+    /**
+     * Returns the source list of a corpus compiled from files: the number of
+     * files, then each one's name, size and last modified time. Two lists are
+     * equal only if no file was added, removed or changed in between
+     *
+     * @param files
+     * @return
+     * @throws IOException
+     */
+    public static byte[] describeSources(List<Path> files) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(files.size());
+        for (Path file : files) {
+            out.writeUTF(file.getFileName().toString());
+            out.writeLong(Files.size(file));
+            out.writeLong(Files.getLastModifiedTime(file).toMillis());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes every bucket of corpus to output in the binary corpus format, with
+     * sources(see describeSources) as its source list
+     *
+     * @param corpus
+     * @param sources
+     * @param output
+     * @throws IOException
+     */
+    public static void write(WordCorpus corpus, byte[] sources, Path output) throws IOException {
+        int numBuckets = corpus.getNumDifficulties();
+
+        // Word data is encoded first so every offset is known before anything is
+        // written
+        int tablesStart = HEADER_BYTES + numBuckets * BUCKET_ENTRY_BYTES;
+        int dataStart = tablesStart;
+        for (int i = 0; i < numBuckets; i++) {
+            dataStart += corpus.size(i) * (Integer.BYTES + Double.BYTES);
+        }
+
+        ByteArrayOutputStream wordData = new ByteArrayOutputStream();
+        int[][] wordOffsets = new int[numBuckets][];
+        for (int i = 0; i < numBuckets; i++) {
+            wordOffsets[i] = new int[corpus.size(i)];
+            for (int j = 0; j < wordOffsets[i].length; j++) {
+                byte[] bytes = corpus.getWord(i, j).getWordString().getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xFFFF) {
+                    throw new IOException("Word too long to store: bucket " + i + ", index " + j);
+                }
+                wordOffsets[i][j] = dataStart + wordData.size();
+                wordData.write(bytes.length >>> 8);
+                wordData.write(bytes.length);
+                wordData.write(bytes);
+            }
+        }
+        if ((long) dataStart + wordData.size() + sources.length > Integer.MAX_VALUE) {
+            throw new IOException("Corpus is larger than a single 2GB mapping");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numBuckets);
+            out.writeInt(dataStart + wordData.size());
+
+            int tablePosition = tablesStart;
+            for (int i = 0; i < numBuckets; i++) {
+                int count = corpus.size(i);
+                out.writeInt(count);
+                out.writeInt(tablePosition);
+                out.writeInt(tablePosition + count * Integer.BYTES);
+                tablePosition += count * (Integer.BYTES + Double.BYTES);
+            }
+
+            for (int i = 0; i < numBuckets; i++) {
+                for (int offset : wordOffsets[i]) {
+                    out.writeInt(offset);
+                }
+                for (int j = 0; j < wordOffsets[i].length; j++) {
+                    out.writeDouble(corpus.getWord(i, j).getFrequency());
+                }
+            }
+            wordData.writeTo(out);
+            out.write(sources);
+        }
+    }
+}
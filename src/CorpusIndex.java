@@ -0,0 +1,355 @@
+
+/**
+ * Index over a set of words for finding every word that fits what a player can
+ * see: the revealed pattern and the letters already guessed. Words are bucketed
+ * by length, and each bucket keeps one bitset per (position, letter) and per
+ * letter, so filtering is a handful of bitset intersections instead of a scan
+ * over strings. Bit i of a bitset stands for the i-th word of the bucket.
+ *
+ * Patterns have one char per position of the word, '_' for a hidden letter,
+ * like Word.getDisplayString without the spaces. Immutable once built, so one
+ * index can be shared by every thread.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class CorpusIndex {
+    // Constants
+    public static final char HIDDEN = '_';
+    static final int OTHER = Word.NUM_LETTERS; // slot for chars that are not letters
+    static final int SLOTS = Word.NUM_LETTERS + 1;
+
+    private final Bucket[] buckets = new Bucket[Word.MAX_LENGTH + 1]; // index is the word length
+    private final int size;
+
+    /**
+     * Words of one length
+     */
+    private static class Bucket {
+        final Word[] words;
+        final byte[] slots; // slot of every char, one word after another
+        final int[] letterMasks; // Word.getLetterMask of each word
+        final long[][] positionBits; // [position * SLOTS + slot], words with that char at that position
+        final long[][] letterBits; // [letter], words containing the letter anywhere
+        boolean hasOthers; // true if some word has a char that is not a letter
+
+        Bucket(Word[] words, int length) {
+            this.words = words;
+            int bitsetLength = (words.length + 63) >>> 6;
+            positionBits = new long[length * SLOTS][bitsetLength];
+            letterBits = new long[Word.NUM_LETTERS][bitsetLength];
+            slots = new byte[words.length * length];
+            letterMasks = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                String word = words[i].getWordString();
+                letterMasks[i] = words[i].getLetterMask();
+                long bit = 1L << i;
+                for (int p = 0; p < length; p++) {
+                    int slot = slot(word.charAt(p));
+                    slots[i * length + p] = (byte) slot;
+                    positionBits[p * SLOTS + slot][i >>> 6] |= bit;
+                    if (slot != OTHER) {
+                        letterBits[slot][i >>> 6] |= bit;
+                    } else {
+                        hasOthers = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes every word of every difficulty of corpus. Words found in more than
+     * one bucket are indexed once
+     * 
+     * @param corpus
+     */
+    public CorpusIndex(WordCorpus corpus) {
+        this(allWords(corpus));
+    }
+
+    /**
+     * Indexes words, which must not contain duplicates
+     * 
+     * @param words
+     */
+    public CorpusIndex(Word[] words) {
+        ArrayList<ArrayList<Word>> byLength = new ArrayList<ArrayList<Word>>();
+        for (int length = 0; length <= Word.MAX_LENGTH; length++) {
+            byLength.add(new ArrayList<Word>());
+        }
+        for (Word word : words) {
+            byLength.get(word.getWordLength(true)).add(word);
+        }
+        for (int length = 1; length <= Word.MAX_LENGTH; length++) {
+            ArrayList<Word> bucketWords = byLength.get(length);
+            if (!bucketWords.isEmpty()) {
+                buckets[length] = new Bucket(bucketWords.toArray(new Word[0]), length);
+            }
+        }
+        this.size = words.length;
+    }
+
+    /**
+     * Turns a display string("_ o _ d", see Word.getDisplayString) into a
+     * pattern
+     * 
+     * @param displayString
+     * @return
+     */
+    public static char[] parsePattern(CharSequence displayString) {
+        char[] pattern = new char[(displayString.length() + 1) / 2];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = displayString.charAt(2 * i);
+        }
+        return pattern;
+    }
+
+    /**
+     * Same as parsePattern, for the ASCII display buffer of a Player
+     * 
+     * @param display
+     * @param length
+     * @return
+     */
+    public static char[] parsePattern(byte[] display, int length) {
+        char[] pattern = new char[(length + 1) / 2];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = (char) display[2 * i];
+        }
+        return pattern;
+    }
+
+    // Getters
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns how many indexed words have length characters
+     * 
+     * @param length
+     * @return
+     */
+    public int size(int length) {
+        Bucket bucket = getBucket(length);
+        return bucket == null ? 0 : bucket.words.length;
+    }
+
+    /**
+     * Returns the index-th word with length characters. Index is the bit that
+     * stands for the word in the bitsets returned by filter
+     * 
+     * @param length
+     * @param index
+     * @return
+     */
+    public Word getWord(int length, int index) {
+        return buckets[length].words[index];
+    }
+
+    /**
+     * Returns the words that fit pattern and guessedMask(see filter)
+     * 
+     * @param pattern
+     * @param guessedMask
+     * @return
+     */
+    public Word[] getCandidates(char[] pattern, int guessedMask) {
+        long[] candidates = filter(pattern, guessedMask);
+        Word[] retVar = new Word[cardinality(candidates)];
+        int i = 0;
+        for (int w = 0; w < candidates.length; w++) {
+            long bits = candidates[w];
+            while (bits != 0) {
+                retVar[i++] = buckets[pattern.length].words[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+        }
+        return retVar;
+    }
+
+    public int countCandidates(char[] pattern, int guessedMask) {
+        return cardinality(filter(pattern, guessedMask));
+    }
+
+    /**
+     * Returns a new bitset over the words of length pattern.length that fit: every
+     * revealed char is at its position, and no hidden position holds a guessed
+     * letter(a guessed letter that was in the word would have been revealed)
+     * 
+     * @param pattern
+     * @param guessedMask
+     * @return
+     */
+    public long[] filter(char[] pattern, int guessedMask) {
+        Bucket bucket = getBucket(pattern.length);
+        if (bucket == null) {
+            return new long[0];
+        }
+        int numWords = bucket.words.length;
+        long[] candidates = new long[(numWords + 63) >>> 6];
+        Arrays.fill(candidates, -1L);
+        if ((numWords & 63) != 0) {
+            candidates[candidates.length - 1] = (1L << numWords) - 1;
+        }
+
+        int revealedMask = 0;
+        boolean checkOthers = false;
+        for (int p = 0; p < pattern.length; p++) {
+            char c = pattern[p];
+            if (c == HIDDEN) {
+                if (bucket.hasOthers) {
+                    // chars that are not letters are never hidden
+                    andNot(candidates, bucket.positionBits[p * SLOTS + OTHER]);
+                }
+                continue;
+            }
+            int slot = slot(c);
+            and(candidates, bucket.positionBits[p * SLOTS + slot]);
+            if (slot == OTHER) {
+                checkOthers = true;
+            } else {
+                revealedMask |= 1 << slot;
+            }
+        }
+
+        // guessed letters that were never revealed are in none of the positions
+        int missed = guessedMask & ~revealedMask & ((1 << Word.NUM_LETTERS) - 1);
+        while (missed != 0) {
+            andNot(candidates, bucket.letterBits[Integer.numberOfTrailingZeros(missed)]);
+            missed &= missed - 1;
+        }
+        // revealed letters are at no other position
+        int found = guessedMask & revealedMask;
+        if (found != 0) {
+            for (int p = 0; p < pattern.length; p++) {
+                if (pattern[p] != HIDDEN) {
+                    continue;
+                }
+                int letters = found;
+                while (letters != 0) {
+                    andNot(candidates, bucket.positionBits[p * SLOTS + Integer.numberOfTrailingZeros(letters)]);
+                    letters &= letters - 1;
+                }
+            }
+        }
+
+        if (checkOthers) {
+            // the bitsets only say some char that is not a letter is there
+            removeOtherMismatches(bucket, candidates, pattern);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the bitset of words with length characters that contain letter.
+     * Shared with the index, must not be modified
+     * 
+     * @param length
+     * @param letter
+     * @return
+     */
+    long[] getLetterBits(int length, char letter) {
+        return buckets[length].letterBits[letter - 'a'];
+    }
+
+    /**
+     * Returns the slot of every char of the words with length characters, word
+     * after word: letter - 'a', or OTHER. Shared with the index, must not be
+     * modified
+     * 
+     * @param length
+     * @return
+     */
+    byte[] getSlots(int length) {
+        return buckets[length].slots;
+    }
+
+    /**
+     * Returns the letter masks of the words with length characters. Shared with
+     * the index, must not be modified
+     * 
+     * @param length
+     * @return
+     */
+    int[] getLetterMasks(int length) {
+        return buckets[length].letterMasks;
+    }
+
+    public static int cardinality(long[] bitset) {
+        int retVar = 0;
+        for (long bits : bitset) {
+            retVar += Long.bitCount(bits);
+        }
+        return retVar;
+    }
+
+    /**
+     * Helper function for filter. Compares chars that are not letters one word at
+     * a time, they are rare enough for that to be cheap
+     * 
+     * @param bucket
+     * @param candidates
+     * @param pattern
+     */
+    private static void removeOtherMismatches(Bucket bucket, long[] candidates, char[] pattern) {
+        for (int w = 0; w < candidates.length; w++) {
+            long bits = candidates[w];
+            while (bits != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                String word = bucket.words[i].getWordString();
+                for (int p = 0; p < pattern.length; p++) {
+                    if (pattern[p] != HIDDEN && slot(pattern[p]) == OTHER && word.charAt(p) != pattern[p]) {
+                        candidates[w] &= ~(1L << i);
+                        break;
+                    }
+                }
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private Bucket getBucket(int length) {
+        return length < buckets.length ? buckets[length] : null;
+    }
+
+    private static int slot(char c) {
+        return Word.letterBit(c) != 0 ? c - 'a' : OTHER;
+    }
+
+    private static void and(long[] target, long[] bits) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= bits[i];
+        }
+    }
+
+    private static void andNot(long[] target, long[] bits) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= ~bits[i];
+        }
+    }
+
+    /**
+     * Helper function for the constructor, also used by PackedWordStore. Every
+     * word of corpus, without duplicates, in corpus order
+     * 
+     * @param corpus
+     * @return
+     */
+    static Word[] allWords(WordCorpus corpus) {
+        ArrayList<Word> words = new ArrayList<Word>();
+        HashSet<String> seen = new HashSet<String>();
+        for (int d = 0; d < corpus.getNumDifficulties(); d++) {
+            for (int i = 0; i < corpus.size(d); i++) {
+                Word word = corpus.getWord(d, i);
+                if (seen.add(word.getWordString())) {
+                    words.add(word);
+                }
+            }
+        }
+        return words.toArray(new Word[0]);
+    }
+}
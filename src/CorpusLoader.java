@@ -0,0 +1,19 @@
+
+/**
+ * Builds a WordCorpus from some source. FileInterfacer loads its corpus through
+ * one of these, so a different dictionary can be plugged in without touching
+ * the game code.
+ */
+
+import java.io.IOException;
+
+public interface CorpusLoader {
+
+    /**
+     * Reads the source and returns the corpus it describes
+     * 
+     * @return
+     * @throws IOException
+     */
+    WordCorpus load() throws IOException;
+}
@@ -0,0 +1,324 @@
+/**
+ * Moves words between difficulty buckets by how hard they turn out to be in
+ * play, instead of by corpus frequency alone. Added to games as a listener, it
+ * counts for every word how often it was played, lost, and how many incorrect
+ * guesses it took. recalibrate, called periodically or by hand, then swaps in a
+ * new corpus(see FileInterfacer.setCorpus) while games keep running.
+ *
+ * A word's hardness is its mean number of incorrect guesses per play, pulled
+ * towards the mean over all words while it has few plays. Only words with at
+ * least minPlays plays move, and every bucket keeps as many of them as it had,
+ * so buckets keep their sizes and words with no evidence stay where they are.
+ * The limits between buckets are exact ranks of the played words' hardness,
+ * since limits that are even slightly off make buckets drift in size with every
+ * recalibration. The incorrect guesses of every play go into a QuantileSketch,
+ * so their distribution is known without keeping them.
+ */
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class DifficultyCalibrator implements GameListener, Closeable {
+    // Constants
+    public static final int DEFAULT_MIN_PLAYS = 20;
+    private static final double PRIOR_PLAYS = 5; // plays worth of the overall mean every word starts with
+
+    private final int minPlays;
+    private final ConcurrentHashMap<String, WordStats> stats = new ConcurrentHashMap<String, WordStats>();
+    private final LongAdder plays = new LongAdder();
+    private final LongAdder incorrectGuesses = new LongAdder();
+    private final QuantileSketch incorrectPerPlay = new QuantileSketch();
+    private volatile double[] boundaries = new double[0]; // hardness limit of every bucket but the last
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Play counts of one word
+     */
+    private static class WordStats {
+        private long plays;
+        private long lost;
+        private long incorrectGuesses;
+
+        synchronized void record(int incorrect, boolean wordLost) {
+            plays++;
+            incorrectGuesses += incorrect;
+            if (wordLost) {
+                lost++;
+            }
+        }
+
+        synchronized long getPlays() {
+            return plays;
+        }
+
+        synchronized long getLost() {
+            return lost;
+        }
+
+        synchronized double getHardness(double overallMean) {
+            return (incorrectGuesses + PRIOR_PLAYS * overallMean) / (plays + PRIOR_PLAYS);
+        }
+    }
+
+    public DifficultyCalibrator() {
+        this(DEFAULT_MIN_PLAYS);
+    }
+
+    public DifficultyCalibrator(int minPlays) {
+        this.minPlays = minPlays;
+    }
+
+    @Override
+    public void onGuess(Player player, GuessResult result) {
+        if (!result.isWordDone()) {
+            return;
+        }
+        // the player still holds the finished word's count until the next word is set up
+        int incorrect = player.getIncorrectGuesses();
+        stats.computeIfAbsent(result.getWord().getWordString(), (String word) -> new WordStats()).record(incorrect,
+                !result.isWordGuessed());
+        plays.increment();
+        incorrectGuesses.add(incorrect);
+        incorrectPerPlay.add(incorrect);
+    }
+
+    /**
+     * Recalibrates every period from now on, on a background thread
+     *
+     * @param period
+     * @param unit
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor((Runnable task) -> {
+            Thread thread = new Thread(task, "difficulty-calibrator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                recalibrate();
+            } catch (RuntimeException e) {
+                // the next run tries again with more plays
+                e.printStackTrace();
+            }
+        }, period, period, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Re-buckets FileInterfacer's corpus by the plays seen so far and swaps it in.
+     * Returns how many words changed bucket. A word found in more than one
+     * bucket only keeps its first entry
+     *
+     * @return
+     */
+    public synchronized int recalibrate() {
+        long totalPlays = plays.sum();
+        if (totalPlays == 0) {
+            return 0;
+        }
+        double overallMean = (double) incorrectGuesses.sum() / totalPlays;
+        WordCorpus current = FileInterfacer.getCorpus();
+        int numBuckets = current.getNumDifficulties();
+
+        // Hardness of every word with enough plays, NaN for the rest and -1 for repeats
+        int[] bucketStarts = new int[numBuckets + 1];
+        for (int d = 0; d < numBuckets; d++) {
+            bucketStarts[d + 1] = bucketStarts[d] + current.size(d);
+        }
+        double[] hardness = new double[bucketStarts[numBuckets]];
+        int[] observed = new int[numBuckets];
+        double[] sortedHardness = new double[hardness.length];
+        int numObserved = 0;
+        HashSet<String> seen = new HashSet<String>();
+        for (int d = 0; d < numBuckets; d++) {
+            for (int i = 0; i < current.size(d); i++) {
+                String word = current.getWord(d, i).getWordString();
+                int flat = bucketStarts[d] + i;
+                WordStats wordStats = stats.get(word);
+                if (!seen.add(word)) {
+                    hardness[flat] = -1;
+                } else if (wordStats == null || wordStats.getPlays() < minPlays) {
+                    hardness[flat] = Double.NaN;
+                } else {
+                    hardness[flat] = wordStats.getHardness(overallMean);
+                    sortedHardness[numObserved++] = hardness[flat];
+                    observed[d]++;
+                }
+            }
+        }
+        if (numObserved == 0) {
+            return 0;
+        }
+        Arrays.sort(sortedHardness, 0, numObserved);
+
+        // Bucket d ends where the words with evidence in buckets 0 to d end. Many
+        // words share a hardness, lost words above all, so only so many of those at
+        // a limit fit at or below it
+        double[] newBoundaries = new double[numBuckets - 1];
+        int[] tiesAllowed = new int[numBuckets - 1];
+        int cumulative = 0;
+        for (int d = 0; d < numBuckets - 1; d++) {
+            cumulative += observed[d];
+            newBoundaries[d] = cumulative == 0 ? Double.NEGATIVE_INFINITY : sortedHardness[cumulative - 1];
+            tiesAllowed[d] = cumulative - countBelow(sortedHardness, numObserved, newBoundaries[d]);
+        }
+
+        ArrayList<ArrayList<Word>> buckets = new ArrayList<ArrayList<Word>>();
+        for (int d = 0; d < numBuckets; d++) {
+            buckets.add(new ArrayList<Word>());
+        }
+        int moved = 0;
+        int[] tiesTaken = new int[numBuckets - 1];
+        for (int d = 0; d < numBuckets; d++) {
+            for (int i = 0; i < current.size(d); i++) {
+                double wordHardness = hardness[bucketStarts[d] + i];
+                if (wordHardness == -1) {
+                    continue;
+                }
+                int bucket = d;
+                if (!Double.isNaN(wordHardness)) {
+                    bucket = findBucket(newBoundaries, wordHardness);
+                    // a word at a limit with no room left at or below it goes on up
+                    while (bucket < numBuckets - 1 && wordHardness == newBoundaries[bucket]
+                            && tiesTaken[bucket] == tiesAllowed[bucket]) {
+                        bucket++;
+                    }
+                    for (int j = bucket; j < numBuckets - 1 && wordHardness == newBoundaries[j]; j++) {
+                        tiesTaken[j]++;
+                    }
+                }
+                if (bucket != d) {
+                    moved++;
+                }
+                buckets.get(bucket).add(current.getWord(d, i));
+            }
+        }
+        FileInterfacer.setCorpus(buildCorpus(buckets, current instanceof CompactWordCorpus));
+        boundaries = newBoundaries;
+        return moved;
+    }
+
+    // Getters
+    public long getPlays() {
+        return plays.sum();
+    }
+
+    public int getNumWordsSeen() {
+        return stats.size();
+    }
+
+    /**
+     * Returns a number of incorrect guesses that about q of all plays stayed at
+     * or below
+     *
+     * @param q
+     * @return
+     */
+    public double getIncorrectGuessQuantile(double q) {
+        return incorrectPerPlay.getQuantile(q);
+    }
+
+    /**
+     * Returns the hardness limit of every bucket but the last from the last
+     * recalibration, empty before the first
+     *
+     * @return
+     */
+    public double[] getBoundaries() {
+        return boundaries.clone();
+    }
+
+    /**
+     * Returns the hardness of word as recalibrate would use it, NaN if it was
+     * never played
+     *
+     * @param word
+     * @return
+     */
+    public double getHardness(String word) {
+        WordStats wordStats = stats.get(word);
+        long totalPlays = plays.sum();
+        return wordStats == null || totalPlays == 0 ? Double.NaN
+                : wordStats.getHardness((double) incorrectGuesses.sum() / totalPlays);
+    }
+
+    /**
+     * Returns the share of word's plays that were lost, NaN if it was never played
+     *
+     * @param word
+     * @return
+     */
+    public double getLossRate(String word) {
+        WordStats wordStats = stats.get(word);
+        return wordStats == null ? Double.NaN : (double) wordStats.getLost() / wordStats.getPlays();
+    }
+
+    // Number of the first length values of sorted below value
+    private static int countBelow(double[] sorted, int length, double value) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First bucket whose limit is at or above hardness, the last bucket has none
+    private static int findBucket(double[] limits, double hardness) {
+        int retVar = 0;
+        while (retVar < limits.length && hardness > limits[retVar]) {
+            retVar++;
+        }
+        return retVar;
+    }
+
+    /**
+     * Helper function for recalibrate. Every bucket is put back in frequency
+     * order, which Game expects. Compact corpora stay compact
+     *
+     * @param buckets
+     * @param compact
+     * @return
+     */
+    private static WordCorpus buildCorpus(ArrayList<ArrayList<Word>> buckets, boolean compact) {
+        if (compact) {
+            CompactWordCorpus.Builder builder = new CompactWordCorpus.Builder();
+            for (ArrayList<Word> bucket : buckets) {
+                builder.newBucket();
+                for (Word word : bucket) {
+                    builder.add(word.getWordString(), word.getFrequency());
+                }
+            }
+            return builder.build(true);
+        }
+        Word[][] wordArrays = new Word[buckets.size()][];
+        for (int d = 0; d < buckets.size(); d++) {
+            wordArrays[d] = buckets.get(d).toArray(new Word[0]);
+            Arrays.sort(wordArrays[d]);
+        }
+        return new ArrayWordCorpus(wordArrays);
+    }
+}
@@ -0,0 +1,201 @@
+
+/**
+ * Loads every data file in a folder whose name describes a frequency range (see
+ * FrequencyRange). Each file is read once, line by line, so bucket sizes come
+ * from the files themselves and any number of files can be dropped in.
+ *
+ * By default every file becomes its own difficulty bucket, easiest first. If
+ * ranges are given, words from all files are instead placed in the first range
+ * containing their frequency, and words outside every range are left out.
+ *
+ * If compact, the words are parsed straight into a CompactWordCorpus without
+ * creating a Word per line, for dictionaries too large to keep as Words.
+ *
+ * Lines that are not words are skipped, and so are words longer than
+ * Word.MAX_LENGTH, which are counted(see getTooLong).
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DirectoryCorpusLoader implements CorpusLoader {
+    private final Path folder;
+    private final List<FrequencyRange> ranges; // null means one bucket per file
+    private final boolean compact;
+    private volatile int tooLong; // lines the last load skipped for their word's length
+
+    public DirectoryCorpusLoader(Path folder) {
+        this(folder, null);
+    }
+
+    public DirectoryCorpusLoader(Path folder, List<FrequencyRange> ranges) {
+        this(folder, ranges, false);
+    }
+
+    public DirectoryCorpusLoader(Path folder, List<FrequencyRange> ranges, boolean compact) {
+        this.folder = folder;
+        this.compact = compact;
+        if (ranges == null) {
+            this.ranges = null;
+        } else {
+            ArrayList<FrequencyRange> sortedRanges = new ArrayList<FrequencyRange>(ranges);
+            Collections.sort(sortedRanges);
+            this.ranges = Collections.unmodifiableList(sortedRanges);
+        }
+    }
+
+    /**
+     * Returns every data file in folder, ordered by their ranges easiest first
+     * 
+     * @param folder
+     * @return
+     * @throws IOException
+     */
+    public static List<Path> listDataFiles(Path folder) throws IOException {
+        ArrayList<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.txt")) {
+            for (Path file : stream) {
+                if (FrequencyRange.fromFileName(file.getFileName().toString()) != null) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort((Path o1, Path o2) -> FrequencyRange.fromFileName(o1.getFileName().toString())
+                .compareTo(FrequencyRange.fromFileName(o2.getFileName().toString())));
+        return files;
+    }
+
+    /**
+     * Returns how many lines the last load skipped for having a word longer than
+     * Word.MAX_LENGTH
+     * 
+     * @return
+     */
+    public int getTooLong() {
+        return tooLong;
+    }
+
+    @Override
+    public WordCorpus load() throws IOException {
+        List<Path> files = listDataFiles(folder);
+        if (files.isEmpty()) {
+            throw new IOException("No data files found in " + folder);
+        }
+        if (compact) {
+            return loadCompact(files);
+        }
+
+        int numBuckets = ranges == null ? files.size() : ranges.size();
+        ArrayList<ArrayList<Word>> buckets = new ArrayList<ArrayList<Word>>();
+        for (int i = 0; i < numBuckets; i++) {
+            buckets.add(new ArrayList<Word>());
+        }
+
+        int skipped = 0;
+        for (int i = 0; i < files.size(); i++) {
+            try (BufferedReader reader = Files.newBufferedReader(files.get(i))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Word word = parseLine(line);
+                    if (word == null) {
+                        if (line.indexOf(',') > Word.MAX_LENGTH) {
+                            skipped++;
+                        }
+                        continue;
+                    }
+                    int bucket = ranges == null ? i : findBucket(word.getFrequency());
+                    if (bucket != -1) {
+                        buckets.get(bucket).add(word);
+                    }
+                }
+            }
+        }
+        tooLong = skipped;
+
+        Word[][] wordArrays = new Word[numBuckets][];
+        for (int i = 0; i < numBuckets; i++) {
+            ArrayList<Word> bucket = buckets.get(i);
+            if (ranges != null) {
+                // words from several files were merged, so restore frequency order
+                Collections.sort(bucket);
+            }
+            wordArrays[i] = bucket.toArray(new Word[bucket.size()]);
+        }
+        return new ArrayWordCorpus(wordArrays);
+    }
+
+    /**
+     * Helper function for load. Only the word's chars and frequency are kept, in
+     * a CompactWordCorpus. With ranges every file is read once per range, since
+     * the builder fills one bucket at a time
+     * 
+     * @param files
+     * @return
+     * @throws IOException
+     */
+    private WordCorpus loadCompact(List<Path> files) throws IOException {
+        CompactWordCorpus.Builder builder = new CompactWordCorpus.Builder();
+        int numBuckets = ranges == null ? files.size() : ranges.size();
+        int skipped = 0;
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            builder.newBucket();
+            for (int i = 0; i < files.size(); i++) {
+                if (ranges == null && i != bucket) {
+                    continue;
+                }
+                try (BufferedReader reader = Files.newBufferedReader(files.get(i))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        int comma = line.indexOf(',');
+                        if (comma <= 0) {
+                            continue;
+                        }
+                        if (comma > Word.MAX_LENGTH) {
+                            // counted on the first pass only, with ranges every pass reads every file
+                            skipped += ranges == null || bucket == 0 ? 1 : 0;
+                            continue;
+                        }
+                        double frequency = Double.parseDouble(line.substring(comma + 1));
+                        if (ranges == null || findBucket(frequency) == bucket) {
+                            builder.add(line.subSequence(0, comma), frequency);
+                        }
+                    }
+                }
+            }
+        }
+        tooLong = skipped;
+        // words from several files were merged, so restore frequency order
+        return builder.build(ranges != null);
+    }
+
+    /**
+     * Each line is "wordString,frequency". Returns null for lines that are not
+     * words or whose word is longer than Word.MAX_LENGTH
+     * 
+     * @param line
+     * @return
+     */
+    public static Word parseLine(String line) {
+        int comma = line.indexOf(',');
+        if (comma <= 0 || comma > Word.MAX_LENGTH) {
+            return null;
+        }
+        return new Word(line.substring(0, comma), Double.parseDouble(line.substring(comma + 1)));
+    }
+
+    // Returns the index of the first range containing frequency, or -1
+    private int findBucket(double frequency) {
+        for (int i = 0; i < ranges.size(); i++) {
+            if (ranges.get(i).contains(frequency)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
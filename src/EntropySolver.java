@@ -0,0 +1,241 @@
+
+/**
+ * Automated player that guesses the letter telling it the most about the
+ * hidden word. It only uses what a player can see, the revealed pattern and the
+ * letters already guessed, and looks up every word in its CorpusIndex that
+ * still fits. Each unguessed letter splits those candidates by where the
+ * letter would appear(or that it would not), and the letter whose split has
+ * the highest entropy wins. Ties go to the letter found in more candidates, so
+ * a letter every candidate has is guessed for free instead of risking a life.
+ *
+ * Candidates are weighted equally, as games pick words from a bucket
+ * uniformly. Thread safe, one solver can play any number of games at once.
+ */
+
+import java.util.Arrays;
+
+public class EntropySolver implements GuessSource {
+    // Constants
+    private static final String FALLBACK_ORDER = "etaoinshrdlcumwfgypbvkjxqz";
+    private static final int ALL_LETTERS = (1 << Word.NUM_LETTERS) - 1;
+
+    private final CorpusIndex index;
+    // best first guess for each length, nothing is known yet so it never changes
+    private final char[] openingGuesses = new char[Word.MAX_LENGTH + 1];
+
+    public EntropySolver(CorpusIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public char nextGuess(Player player, Word word) {
+        char[] pattern = CorpusIndex.parsePattern(player.getDisplayBuffer(), player.getDisplayLength());
+        return bestGuess(pattern, player.getGuessedMask());
+    }
+
+    /**
+     * Returns the letter with the highest information gain over the words that
+     * fit pattern and guessedMask(see CorpusIndex.filter). If no indexed word
+     * fits, falls back to the most common English letter not yet guessed
+     * 
+     * @param pattern
+     * @param guessedMask
+     * @return
+     */
+    public char bestGuess(char[] pattern, int guessedMask) {
+        boolean opening = guessedMask == 0 && isAllHidden(pattern);
+        if (opening && openingGuesses[pattern.length] != 0) {
+            return openingGuesses[pattern.length];
+        }
+
+        long[] candidates = index.filter(pattern, guessedMask);
+        int numCandidates = CorpusIndex.cardinality(candidates);
+        if (numCandidates == 0) {
+            return fallbackGuess(guessedMask);
+        }
+
+        // Position masks of every unguessed letter in every candidate, grouped by
+        // letter, gathered in one pass so each candidate word is read once
+        int unguessed = ~guessedMask & ALL_LETTERS;
+        int[] starts = new int[Word.NUM_LETTERS + 1];
+        for (int letter = 0; letter < Word.NUM_LETTERS; letter++) {
+            int holders = (unguessed & (1 << letter)) == 0 ? 0
+                    : countHolders(candidates, index.getLetterBits(pattern.length, (char) ('a' + letter)));
+            starts[letter + 1] = starts[letter] + holders;
+        }
+        long[] positionMasks = new long[starts[Word.NUM_LETTERS]];
+        collectPositionMasks(pattern.length, unguessed, candidates, starts.clone(), positionMasks);
+
+        MaskCounter counter = new MaskCounter(maxHolders(starts));
+        char best = 0;
+        double bestEntropy = -1;
+        int bestHolders = 0;
+        for (int letter = 0; letter < Word.NUM_LETTERS; letter++) {
+            int holders = starts[letter + 1] - starts[letter];
+            if (holders == 0) {
+                // guessed already, or a certain miss
+                continue;
+            }
+            double entropy = splitEntropy(counter, positionMasks, starts[letter], holders, numCandidates);
+            if (entropy > bestEntropy || (entropy == bestEntropy && holders > bestHolders)) {
+                best = (char) ('a' + letter);
+                bestEntropy = entropy;
+                bestHolders = holders;
+            }
+        }
+        if (best == 0) {
+            return fallbackGuess(guessedMask);
+        }
+        if (opening) {
+            openingGuesses[pattern.length] = best;
+        }
+        return best;
+    }
+
+    /**
+     * Helper function for bestGuess. For every candidate, writes where each of
+     * its unguessed letters is into that letter's part of positionMasks, which
+     * starts at next[letter]
+     * 
+     * @param length
+     * @param unguessed
+     * @param candidates
+     * @param next
+     * @param positionMasks
+     */
+    private void collectPositionMasks(int length, int unguessed, long[] candidates, int[] next,
+            long[] positionMasks) {
+        // reads the index's packed chars rather than each Word, which keeps the
+        // loop on a few sequential arrays
+        byte[] slots = index.getSlots(length);
+        int[] letterMasks = index.getLetterMasks(length);
+        long[] wordMasks = new long[CorpusIndex.SLOTS];
+        for (int w = 0; w < candidates.length; w++) {
+            long bits = candidates[w];
+            while (bits != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                for (int p = 0; p < length; p++) {
+                    wordMasks[slots[i * length + p]] |= 1L << p;
+                }
+                int letters = letterMasks[i];
+                while (letters != 0) {
+                    int letter = Integer.numberOfTrailingZeros(letters);
+                    if ((unguessed & (1 << letter)) != 0) {
+                        positionMasks[next[letter]++] = wordMasks[letter];
+                    }
+                    wordMasks[letter] = 0;
+                    letters &= letters - 1;
+                }
+                wordMasks[CorpusIndex.OTHER] = 0;
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * Helper function for bestGuess. Entropy, in bits, of splitting total
+     * candidates into those without the letter and one group per distinct
+     * position mask among the holders masks starting at from
+     * 
+     * @param counter
+     * @param positionMasks
+     * @param from
+     * @param holders
+     * @param total
+     * @return
+     */
+    private static double splitEntropy(MaskCounter counter, long[] positionMasks, int from, int holders,
+            int total) {
+        counter.clear(holders);
+        for (int i = from; i < from + holders; i++) {
+            counter.add(positionMasks[i]);
+        }
+        // sum of c * log(c) over the group sizes c, entropy is log(total) - sum / total
+        double sum = xLogX(total - holders) + counter.sumXLogX();
+        return (Math.log(total) - sum / total) / Math.log(2);
+    }
+
+    /**
+     * Counts how often each position mask occurs. Open addressing over two
+     * arrays, 0 marks a free slot since a letter a word holds is somewhere
+     */
+    private static class MaskCounter {
+        private final long[] keys;
+        private final int[] counts;
+        private int mask; // slots in use - 1
+
+        MaskCounter(int maxDistinct) {
+            int capacity = Integer.highestOneBit(Math.max(2 * maxDistinct - 1, 1)) << 1;
+            keys = new long[capacity];
+            counts = new int[capacity];
+        }
+
+        // Empties the table, sized for up to distinct keys
+        void clear(int distinct) {
+            int slots = Integer.highestOneBit(Math.max(2 * distinct - 1, 1)) << 1;
+            Arrays.fill(keys, 0, slots, 0L);
+            mask = slots - 1;
+        }
+
+        void add(long key) {
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+        }
+
+        double sumXLogX() {
+            double retVar = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                if (keys[slot] != 0) {
+                    retVar += xLogX(counts[slot]);
+                }
+            }
+            return retVar;
+        }
+    }
+
+    private static int countHolders(long[] candidates, long[] letterBits) {
+        int retVar = 0;
+        for (int w = 0; w < candidates.length; w++) {
+            retVar += Long.bitCount(candidates[w] & letterBits[w]);
+        }
+        return retVar;
+    }
+
+    private static int maxHolders(int[] starts) {
+        int retVar = 0;
+        for (int letter = 0; letter < Word.NUM_LETTERS; letter++) {
+            retVar = Math.max(retVar, starts[letter + 1] - starts[letter]);
+        }
+        return retVar;
+    }
+
+    private static double xLogX(int x) {
+        return x <= 1 ? 0 : x * Math.log(x);
+    }
+
+    private static boolean isAllHidden(char[] pattern) {
+        for (char c : pattern) {
+            if (c != CorpusIndex.HIDDEN) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fallbackGuess(int guessedMask) {
+        for (int i = 0; i < FALLBACK_ORDER.length(); i++) {
+            char c = FALLBACK_ORDER.charAt(i);
+            if ((guessedMask & Word.letterBit(c)) == 0) {
+                return c;
+            }
+        }
+        return FALLBACK_ORDER.charAt(0);
+    }
+}
@@ -1,95 +1,280 @@
 
 /**
  * Handles and parses data files.
- * 3 data files, grouped by frequency, provide words to be used for gameplay
+ * Data files, grouped by frequency, provide words to be used for gameplay
+ * If a compiled corpus (see CorpusCompiler) was compiled from the data files as
+ * they are now, it is memory mapped instead of parsing the text files
  */
 
-import java.io.FileNotFoundException;
-import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Scanner;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class FileInterfacer {
     // Constants
-    private static final String[] FILE_NAMES = { "4-31to6-82.txt", "2-31to4-3.txt", "1-6to2-3.txt" };
-    private static final HashMap<String, Integer> NUM_WORDS_PER_FILE = new HashMap<String, Integer>() {
-        {
-            put(FILE_NAMES[0], 248);
-            put(FILE_NAMES[1], 2898);
-            put(FILE_NAMES[2], 2928);
-        }
-    };
     private static final String FOLDER_NAME = "data";
+    public static final String BINARY_CORPUS_PATH = FOLDER_NAME + "/corpus.bin";
+
+    // Every data file is parsed once and kept in memory for all later games
+    private static volatile WordCorpus corpus;
+    private static CorpusLoader corpusLoader; // null means the default data folder
+    private static volatile WordGraph wordGraph; // built from corpus the first time it is needed
+    // Samplers are expensive to build, so the ones games ask for are reused
+    private static HashMap<String, FrequencyCurveSampler> curveSamplers = new HashMap<String, FrequencyCurveSampler>();
+
+    /**
+     * Replaces where words are loaded from. The new loader is used the next time
+     * the corpus is needed
+     *
+     * @param loader
+     */
+    public static synchronized void setCorpusLoader(CorpusLoader loader) {
+        corpusLoader = loader;
+        corpus = null;
+        wordGraph = null;
+        curveSamplers.clear();
+    }
+
+    /**
+     * Replaces the shared corpus without reloading anything, e.g. after
+     * DifficultyCalibrator moved words between buckets. Games already dealt keep
+     * their words, games set up from now on draw from corpus
+     *
+     * @param newCorpus
+     */
+    public static synchronized void setCorpus(WordCorpus newCorpus) {
+        corpus = newCorpus;
+        wordGraph = null;
+        curveSamplers.clear();
+    }
+
+    /**
+     * Returns the shared corpus, loading it from the data files the first time
+     * this is called
+     *
+     * @return
+     */
+    public static WordCorpus getCorpus() {
+        // Read without the lock once loaded, every new game calls this
+        WordCorpus currCorpus = corpus;
+        if (currCorpus != null) {
+            return currCorpus;
+        }
+        synchronized (FileInterfacer.class) {
+            if (corpus == null) {
+                corpus = loadCorpus();
+            }
+            return corpus;
+        }
+    }
 
     /**
-     * Preconditions: num < max number of words, difficulty is between 0 and 2
-     * 
+     * Returns a WordGraph over every word of the shared corpus, for pattern
+     * queries. Built the first time this is called
+     *
+     * @return
+     */
+    public static WordGraph getWordGraph() {
+        WordGraph currGraph = wordGraph;
+        if (currGraph != null) {
+            return currGraph;
+        }
+        synchronized (FileInterfacer.class) {
+            if (wordGraph == null) {
+                wordGraph = new WordGraph(getCorpus());
+            }
+            return wordGraph;
+        }
+    }
+
+    /**
+     * Preconditions: num <= number of words in the bucket, difficulty is between 0
+     * and getCorpus().getNumDifficulties() - 1
+     *
      * Returns num random words from the appropriate difficulty file Higher
      * frequency words are easier and lower frequency words are harder
-     * 
+     *
      * @param difficulty
      * @param num
      * @return
      */
     public static Word[] getRandomWords(int difficulty, int num) {
-        // Uses HashSet in the offchance that random generates duplicates
+        GameEvents.GameSetup event = new GameEvents.GameSetup();
+        event.begin();
+        long start = GameMetrics.getDefault().startTimer();
+        Word[] retVar = sampleBucket(difficulty, num);
+        recordSetup(event, start, difficulty, num, "bucket");
+        return retVar;
+    }
+
+    /**
+     * Helper function for getRandomWords, which instruments it
+     *
+     * @param difficulty
+     * @param num
+     * @return
+     */
+    private static Word[] sampleBucket(int difficulty, int num) {
+        WordCorpus currCorpus = getCorpus();
+        int maxNum = currCorpus.size(difficulty);
+        if (num < 0) {
+            throw new IllegalArgumentException("Cannot pick " + num + " words");
+        }
+        if (num > maxNum) {
+            throw new IllegalArgumentException(
+                    "Requested " + num + " words but difficulty " + difficulty + " only has " + maxNum);
+        }
+
+        // Floyd's algorithm: exactly num draws, no matter how close num is to maxNum
         HashSet<Integer> randomIndices = new HashSet<Integer>();
-        int maxNum = NUM_WORDS_PER_FILE.get(FILE_NAMES[difficulty]);
+        for (int j = maxNum - num; j < maxNum; j++) {
+            int potentialIndex = ThreadLocalRandom.current().nextInt(j + 1);
+            randomIndices.add(randomIndices.contains(potentialIndex) ? j : potentialIndex);
+        }
 
-        while (randomIndices.size() < num) {
-            // Generates and adds random indices
-            int potentialIndex = ThreadLocalRandom.current().nextInt(maxNum);
-            randomIndices.add(potentialIndex);
+        // Indices are sorted so words come back in file order, which is by frequency
+        int[] sortedIndices = new int[num];
+        int i = 0;
+        for (int index : randomIndices) {
+            sortedIndices[i++] = index;
         }
-        // Converts to int[] and returns after calling helper function
-        Integer[] finalArray = new Integer[num];
-        return getWordsAtPositions(difficulty, randomIndices.toArray(finalArray));
+        Arrays.sort(sortedIndices);
+
+        Word[] retVar = new Word[num];
+        for (i = 0; i < num; i++) {
+            retVar[i] = currCorpus.getWord(difficulty, sortedIndices[i]);
+        }
+        return retVar;
     }
 
     /**
-     * Helper function for getRandomWords. Returns the words stored in the
-     * appropriate file in the appropriate indices
-     * 
-     * @param fileNum
-     * @param indices
+     * Returns num random words from the whole corpus, favouring words whose
+     * frequency is close to targetFrequency. spread controls how quickly words
+     * further away become unlikely. Unlike getRandomWords, difficulty is not tied
+     * to a single bucket
+     *
+     * @param targetFrequency
+     * @param spread
+     * @param num
      * @return
      */
+    public static Word[] getWordsNearFrequency(double targetFrequency, double spread, int num) {
+        GameEvents.GameSetup event = new GameEvents.GameSetup();
+        event.begin();
+        long start = GameMetrics.getDefault().startTimer();
+        FrequencyCurveSampler sampler;
+        synchronized (FileInterfacer.class) {
+            WordCorpus currCorpus = getCorpus();
+            String key = targetFrequency + ":" + spread;
+            sampler = curveSamplers.get(key);
+            if (sampler == null) {
+                sampler = new FrequencyCurveSampler(currCorpus, targetFrequency, spread);
+                curveSamplers.put(key, sampler);
+            }
+        }
+        Word[] retVar = sampler.sample(num);
+        recordSetup(event, start, -1, num, "frequency curve");
+        return retVar;
+    }
 
-    private static Word[] getWordsAtPositions(int fileNum, Integer[] indices) {
-        // Indices need to be sorted because lines are read one by one in ascending
-        // order
-        Arrays.sort(indices);
+    /**
+     * Returns num random words read straight from file in one pass, without
+     * loading the file into the corpus. Use for dictionaries too large to keep in
+     * memory. If weighted, more frequent words are more likely to be picked
+     *
+     * @param file
+     * @param num
+     * @param weighted
+     * @return
+     * @throws IOException
+     */
+    public static Word[] getRandomWordsStreaming(Path file, int num, boolean weighted) throws IOException {
+        return ReservoirSampler.sample(file, num, weighted);
+    }
 
-        // Tracks how many words have been added
-        int numWords = 0;
-        Word[] retVar = new Word[indices.length];
+    // Helper function for the samplers above, difficulty is -1 if words came from every bucket
+    private static void recordSetup(GameEvents.GameSetup event, long start, int difficulty, int num,
+            String sampler) {
+        GameMetrics.getDefault().recordSetup(start);
+        if (event.shouldCommit()) {
+            event.difficulty = difficulty;
+            event.words = num;
+            event.sampler = sampler;
+            event.commit();
+        }
+    }
 
+    /**
+     * Helper function for getCorpus. Uses the configured loader if there is one,
+     * otherwise prefers the compiled corpus unless a data file was added, removed
+     * or changed since it was compiled
+     *
+     * @return
+     */
+    private static WordCorpus loadCorpus() {
         try {
-            File currFile = new File(FOLDER_NAME + "/" + FILE_NAMES[fileNum]);
-            Scanner currScanner = new Scanner(currFile);
-            int i = 0;
-
-            // Keep looping until end of file or array is full
-            while (currScanner.hasNextLine() && numWords < indices.length) {
-                String line = "";
-                // Goes to the current line number
-                while (i < indices[numWords]) {
-                    line = currScanner.nextLine();
-                    i++;
-                }
-                // Parses the line and stores generated word object
-                String[] lineArray = line.split(","); // each line is "wordString, frequency"
-                retVar[numWords] = new Word(lineArray[0], Double.parseDouble(lineArray[1]));
-                numWords += 1;
+            if (corpusLoader != null) {
+                return corpusLoader.load();
+            }
+            Path binaryCorpus = Paths.get(BINARY_CORPUS_PATH);
+            if (Files.exists(binaryCorpus) && isUpToDate(binaryCorpus)) {
+                return new MappedWordCorpus(binaryCorpus);
             }
-            currScanner.close();
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            return loadTextCorpus();
+        } catch (IOException e) {
+            // no words means no game, nothing sensible to fall back to
+            throw new UncheckedIOException(e);
         }
+    }
+
+    /**
+     * Helper function for loadCorpus. Returns true if the compiled corpus lists
+     * exactly the data files there are now, with the same sizes and modification
+     * times. Compares against the names and stats recorded at compile time, not
+     * the corpus file's own timestamp, so deleted files and files copied in with
+     * old timestamps are noticed too
+     *
+     * @param binaryCorpus
+     * @return
+     * @throws IOException
+     */
+    private static boolean isUpToDate(Path binaryCorpus) throws IOException {
+        byte[] compiledFrom = MappedWordCorpus.readSources(binaryCorpus);
+        return compiledFrom != null && Arrays.equals(compiledFrom, CorpusCompiler.describeSources(getDataFiles()));
+    }
 
+    /**
+     * Returns the text data files the corpus is parsed from, easiest first
+     *
+     * @return
+     * @throws IOException
+     */
+    public static List<Path> getDataFiles() throws IOException {
+        return DirectoryCorpusLoader.listDataFiles(Paths.get(FOLDER_NAME));
+    }
+
+    /**
+     * Parses every text data file into its own difficulty bucket. Kept as a
+     * CompactWordCorpus if -Dhangman.corpus.compact=true
+     *
+     * @return
+     * @throws IOException
+     */
+    public static WordCorpus loadTextCorpus() throws IOException {
+        DirectoryCorpusLoader loader = new DirectoryCorpusLoader(Paths.get(FOLDER_NAME), null,
+                Boolean.getBoolean("hangman.corpus.compact"));
+        WordCorpus retVar = loader.load();
+        if (loader.getTooLong() > 0) {
+            System.err.println("Skipped " + loader.getTooLong() + " words longer than " + Word.MAX_LENGTH
+                    + " characters in " + FOLDER_NAME);
+        }
         return retVar;
     }
 
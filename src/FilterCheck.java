@@ -0,0 +1,204 @@
+
+/**
+ * Checks that every candidate filter finds the same words: CorpusIndex.filter,
+ * each PackedWordStore kernel and WordGraph's pattern walk. Patterns are made
+ * the way a game shows them, from random words and random guessed letters,
+ * plus some from random letters that may fit nothing. Also checks that
+ * WordGraph numbers and finds every word with its frequency.
+ *
+ * Run after changing any of the filters. Exits with an IllegalStateException
+ * naming the first pattern they disagree on. The vector kernel is only checked
+ * when run with --add-modules jdk.incubator.vector, otherwise it is SWAR.
+ *
+ * Options:
+ * --patterns N      patterns to check(default 20000)
+ * --extra N         random words added to the corpus, for larger length buckets(default 0)
+ * --seed S          seed for the patterns and extra words(default 1)
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+public class FilterCheck {
+    // Constants
+    private static final int RANDOM_PATTERN_ODDS = 10; // one pattern in this many is made of random letters
+    private static final int MAX_EXTRA_LENGTH = 16;
+
+    public static void main(String[] args) {
+        int patterns = 20000;
+        int extra = 0;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--patterns":
+                    patterns = Integer.parseInt(args[++i]);
+                    break;
+                case "--extra":
+                    extra = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Random random = new Random(seed);
+        Word[] words = addRandomWords(CorpusIndex.allWords(FileInterfacer.getCorpus()), extra, random);
+        long start = System.nanoTime();
+        check(words, patterns, random);
+        System.out.println("All filters agree on " + patterns + " patterns over " + words.length
+                + " words, kernels: " + Arrays.toString(PackedWordStore.Kernel.values()) + " (vector "
+                + (PackedWordStore.isVectorAvailable() ? "available" : "falls back to SWAR") + "), "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * Builds every filter over words, which must not contain duplicates, and
+     * compares them on patterns random patterns. Throws IllegalStateException at
+     * the first difference
+     *
+     * @param words
+     * @param patterns
+     * @param random
+     */
+    public static void check(Word[] words, int patterns, Random random) {
+        CorpusIndex index = new CorpusIndex(words);
+        PackedWordStore store = new PackedWordStore(words);
+        WordGraph graph = new WordGraph(words);
+        checkGraphWords(words, graph);
+
+        for (int n = 0; n < patterns; n++) {
+            Word source = words[random.nextInt(words.length)];
+            int guessedMask = 0;
+            char[] pattern;
+            if (random.nextInt(RANDOM_PATTERN_ODDS) == 0) {
+                pattern = randomPattern(source.getWordLength(true), random);
+                guessedMask = random.nextInt(1 << Word.NUM_LETTERS) & random.nextInt(1 << Word.NUM_LETTERS);
+            } else {
+                // about half of the word's letters and a few it does not have
+                String chars = source.getWordString();
+                for (int i = 0; i < chars.length(); i++) {
+                    if (random.nextBoolean()) {
+                        guessedMask |= Word.letterBit(chars.charAt(i));
+                    }
+                }
+                for (int i = random.nextInt(6); i > 0; i--) {
+                    guessedMask |= 1 << random.nextInt(Word.NUM_LETTERS);
+                }
+                pattern = CorpusIndex.parsePattern(source.getDisplayString(guessedMask));
+            }
+            checkPattern(index, store, graph, pattern, guessedMask);
+        }
+    }
+
+    /**
+     * Helper function for check. Compares every filter on one pattern, with
+     * CorpusIndex as the reference
+     *
+     * @param index
+     * @param store
+     * @param graph
+     * @param pattern
+     * @param guessedMask
+     */
+    private static void checkPattern(CorpusIndex index, PackedWordStore store, WordGraph graph, char[] pattern,
+            int guessedMask) {
+        long[] expected = index.filter(pattern, guessedMask);
+        for (PackedWordStore.Kernel kernel : PackedWordStore.Kernel.values()) {
+            if (!Arrays.equals(expected, store.filter(pattern, guessedMask, kernel))) {
+                throw mismatch(kernel + " kernel", pattern, guessedMask);
+            }
+        }
+
+        ArrayList<String> expectedWords = new ArrayList<String>();
+        for (int i = 0; i < index.size(pattern.length); i++) {
+            if ((expected[i >>> 6] & (1L << i)) != 0) {
+                expectedWords.add(index.getWord(pattern.length, i).getWordString());
+            }
+        }
+        // WordGraph gives its matches in alphabetical order
+        expectedWords.sort(null);
+        Word[] matches = graph.getMatches(pattern, guessedMask);
+        if (matches.length != expectedWords.size() || graph.countMatches(pattern, guessedMask) != matches.length) {
+            throw mismatch("WordGraph", pattern, guessedMask);
+        }
+        for (int i = 0; i < matches.length; i++) {
+            if (!matches[i].getWordString().equals(expectedWords.get(i))) {
+                throw mismatch("WordGraph", pattern, guessedMask);
+            }
+        }
+    }
+
+    /**
+     * Helper function for check. Every word must be found at its alphabetical
+     * position with its own frequency
+     *
+     * @param words
+     * @param graph
+     */
+    private static void checkGraphWords(Word[] words, WordGraph graph) {
+        Word[] sortedWords = words.clone();
+        Arrays.sort(sortedWords, (Word o1, Word o2) -> o1.getWordString().compareTo(o2.getWordString()));
+        if (graph.size() != sortedWords.length) {
+            throw new IllegalStateException("WordGraph holds " + graph.size() + " words, not " + sortedWords.length);
+        }
+        for (int rank = 0; rank < sortedWords.length; rank++) {
+            String word = sortedWords[rank].getWordString();
+            Word found = graph.getWord(word);
+            if (graph.indexOf(word) != rank || found.getFrequency() != sortedWords[rank].getFrequency()) {
+                throw new IllegalStateException("WordGraph gives " + word + " the wrong position or frequency");
+            }
+        }
+    }
+
+    private static char[] randomPattern(int length, Random random) {
+        char[] retVar = new char[length];
+        for (int i = 0; i < length; i++) {
+            retVar[i] = random.nextInt(3) == 0 ? (char) ('a' + random.nextInt(Word.NUM_LETTERS)) : CorpusIndex.HIDDEN;
+        }
+        return retVar;
+    }
+
+    /**
+     * Helper function for main. Returns words with count random words of random
+     * length and frequency added, none of them already there
+     *
+     * @param words
+     * @param count
+     * @param random
+     * @return
+     */
+    private static Word[] addRandomWords(Word[] words, int count, Random random) {
+        ArrayList<Word> retVar = new ArrayList<Word>(Arrays.asList(words));
+        HashSet<String> seen = new HashSet<String>();
+        for (Word word : words) {
+            seen.add(word.getWordString());
+        }
+        StringBuilder word = new StringBuilder();
+        while (retVar.size() < words.length + count) {
+            word.setLength(0);
+            int length = 2 + random.nextInt(MAX_EXTRA_LENGTH - 1);
+            for (int i = 0; i < length; i++) {
+                // few distinct letters, so words share prefixes and suffixes like real ones
+                word.append((char) ('a' + random.nextInt(8)));
+            }
+            if (seen.add(word.toString())) {
+                retVar.add(new Word(word.toString(), 1 + 6 * random.nextDouble()));
+            }
+        }
+        return retVar.toArray(new Word[0]);
+    }
+
+    private static IllegalStateException mismatch(String filter, char[] pattern, int guessedMask) {
+        StringBuilder guessed = new StringBuilder();
+        for (int letters = guessedMask; letters != 0; letters &= letters - 1) {
+            guessed.append((char) ('a' + Integer.numberOfTrailingZeros(letters)));
+        }
+        return new IllegalStateException(filter + " differs from CorpusIndex on " + new String(pattern)
+                + " with " + guessed + " guessed");
+    }
+}
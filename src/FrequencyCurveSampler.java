@@ -0,0 +1,138 @@
+
+/**
+ * Picks words from every bucket of a corpus along a continuous difficulty curve
+ * instead of a fixed bucket. A word's weight falls off like a bell curve the
+ * further its frequency is from the target, so targets between buckets are
+ * possible.
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class FrequencyCurveSampler {
+    // Constants
+    private static final int MAX_DRAWS_PER_WORD = 4; // alias draws allowed before giving up on rejection
+
+    // Words are only created once picked, so compact corpora stay compact
+    private final WordCorpus corpus;
+    private final int[] bucketStarts; // flat index of the first word of each bucket
+    private final double[] weights;
+    private final int numWeighted; // words with a weight above zero
+    private final AliasSampler sampler;
+
+    /**
+     * Flattens corpus and weights each word by how close its frequency is to
+     * targetFrequency. spread is the standard deviation of the curve
+     * 
+     * @param corpus
+     * @param targetFrequency
+     * @param spread
+     */
+    public FrequencyCurveSampler(WordCorpus corpus, double targetFrequency, double spread) {
+        if (!(spread > 0)) {
+            throw new IllegalArgumentException("Spread must be positive, was " + spread);
+        }
+        this.corpus = corpus;
+        bucketStarts = new int[corpus.getNumDifficulties() + 1];
+        for (int d = 0; d < corpus.getNumDifficulties(); d++) {
+            bucketStarts[d + 1] = bucketStarts[d] + corpus.size(d);
+        }
+
+        weights = new double[bucketStarts[corpus.getNumDifficulties()]];
+        int i = 0;
+        int weighted = 0;
+        for (int d = 0; d < corpus.getNumDifficulties(); d++) {
+            for (int j = 0; j < corpus.size(d); j++) {
+                double distance = (corpus.getFrequency(d, j) - targetFrequency) / spread;
+                weights[i] = Math.exp(-0.5 * distance * distance);
+                if (weights[i] > 0) {
+                    weighted++;
+                }
+                i++;
+            }
+        }
+        numWeighted = weighted;
+        sampler = new AliasSampler(weights);
+    }
+
+    /**
+     * Returns num distinct words sorted by frequency
+     * 
+     * @param num
+     * @return
+     */
+    public Word[] sample(int num) {
+        if (num > numWeighted) {
+            throw new IllegalArgumentException(
+                    "Requested " + num + " words but only " + numWeighted + " can be picked");
+        }
+        Word[] retVar = new Word[num];
+
+        // Alias draws are O(1) each; duplicates are rare unless num is close to the
+        // number of pickable words, in which case the draw budget runs out
+        BitSet picked = new BitSet(weights.length);
+        int found = 0;
+        int draws = 0;
+        while (found < num && draws < MAX_DRAWS_PER_WORD * num) {
+            int index = sampler.next();
+            draws++;
+            if (!picked.get(index)) {
+                picked.set(index);
+                retVar[found++] = wordAt(index);
+            }
+        }
+        if (found < num) {
+            // Too many duplicates, so finish with one weighted pass that cannot repeat
+            fillWithoutReplacement(retVar, found, picked);
+        }
+
+        Arrays.sort(retVar);
+        return retVar;
+    }
+
+    /**
+     * Helper function for sample. Fills retVar from position found onwards with
+     * A-Res over every word not already picked
+     * 
+     * @param retVar
+     * @param found
+     * @param picked
+     */
+    private void fillWithoutReplacement(Word[] retVar, int found, BitSet picked) {
+        int needed = retVar.length - found;
+        // Smallest key on top, stored as {key, index}
+        PriorityQueue<double[]> heap = new PriorityQueue<double[]>(needed,
+                (double[] o1, double[] o2) -> Double.compare(o1[0], o2[0]));
+        for (int i = 0; i < weights.length; i++) {
+            if (picked.get(i) || !(weights[i] > 0)) {
+                continue;
+            }
+            double key = Math.log(ThreadLocalRandom.current().nextDouble()) / weights[i];
+            if (heap.size() < needed) {
+                heap.add(new double[] { key, i });
+            } else if (key > heap.peek()[0]) {
+                heap.poll();
+                heap.add(new double[] { key, i });
+            }
+        }
+        for (double[] entry : heap) {
+            retVar[found++] = wordAt((int) entry[1]);
+        }
+    }
+
+    // Word at a flat index over every bucket
+    private Word wordAt(int index) {
+        int bucket = Arrays.binarySearch(bucketStarts, index);
+        // not found gives -(insertion point) - 1, and the bucket is the one before
+        // that point. Empty buckets share a start, so the last bucket with it is used
+        if (bucket < 0) {
+            bucket = -bucket - 2;
+        }
+        while (bucket + 1 < bucketStarts.length - 1 && bucketStarts[bucket + 1] == index) {
+            bucket++;
+        }
+        return corpus.getWord(bucket, index - bucketStarts[bucket]);
+    }
+}
@@ -0,0 +1,68 @@
+
+/**
+ * Inclusive range of word frequencies that makes up one difficulty bucket.
+ * Data files are named after their range, with '-' standing in for the decimal
+ * point: "2-31to4-3.txt" holds words with frequencies from 2.31 to 4.3
+ */
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class FrequencyRange implements Comparable<FrequencyRange> {
+    // Constants
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("(\\d+(?:-\\d+)?)to(\\d+(?:-\\d+)?)\\.txt");
+
+    private final double min;
+    private final double max;
+
+    public FrequencyRange(double min, double max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Range minimum " + min + " is above maximum " + max);
+        }
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Returns the range encoded in a data file name, or null if the name does not
+     * describe one
+     * 
+     * @param fileName
+     * @return
+     */
+    public static FrequencyRange fromFileName(String fileName) {
+        Matcher matcher = FILE_NAME_PATTERN.matcher(fileName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new FrequencyRange(Double.parseDouble(matcher.group(1).replace('-', '.')),
+                Double.parseDouble(matcher.group(2).replace('-', '.')));
+    }
+
+    @Override
+    public String toString() {
+        return "{Frequency Range: " + min + " to " + max + "}";
+    }
+
+    // Ranges are ordered easiest first, which means highest frequencies first
+    @Override
+    public int compareTo(FrequencyRange o) {
+        if (this.min == o.min) {
+            return Double.compare(o.max, this.max);
+        }
+        return Double.compare(o.min, this.min);
+    }
+
+    // Getters
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public boolean contains(double frequency) {
+        return frequency >= min && frequency <= max;
+    }
+}
@@ -1,17 +1,16 @@
 
+import java.util.ArrayList;
 import java.util.Scanner;
 import java.util.Arrays;
-import java.util.HashSet;
 
 /**
  * The main class for this project. Handles all events related to the game
+ *
+ * The rules run without any console access: applyGuess takes the guess of the
+ * player whose turn it is and returns a GuessResult, and GameListeners are told
+ * about everything that happens. runGame drives a whole game from a GuessSource.
  */
 public class Game {
-    // Constants
-    private static final int SCORE_MULTIPLIER = 100;
-    private static final int GUESS_MULTIPLIER = 10;
-    private static final boolean DEBUG_MODE = true;
-
     // Required fields for constructor
     private int difficulty;
     private Player[] players;
@@ -19,9 +18,17 @@ public class Game {
     private int livesPerPlayer;
 
     private Player[] standings;
+    private ScoringPolicy scoringPolicy = ClassicScoring.DEFAULT;
+
+    // Turn state
+    private int turn; // index into players of whose turn it is
+    private int rounds; // completed rounds
+    private boolean gameOver;
+    private ArrayList<GameListener> listeners = new ArrayList<GameListener>();
 
     /**
-     * Difficulty must be between 0 - 2. All fields are initialized.
+     * Difficulty must be a bucket of FileInterfacer's corpus, numberOfWords and
+     * livesPerPlayer at least 1. All fields are initialized.
      * 
      * @param difficulty
      * @param numberOfWords
@@ -30,10 +37,28 @@ public class Game {
      */
 
     public Game(int difficulty, int numberOfWords, Player[] players, int livesPerPlayer) {
+        // numberOfWords is per player
+        this(difficulty, FileInterfacer.getRandomWords(difficulty,
+                wordsNeeded(numberOfWords, players.length, livesPerPlayer)), numberOfWords, players, livesPerPlayer);
+    }
+
+    /**
+     * Same as above, but with the words already chosen. words must hold
+     * numberOfWords * players.length words sorted by frequency
+     * 
+     * @param difficulty
+     * @param words
+     * @param numberOfWords
+     * @param players
+     * @param livesPerPlayer
+     */
+    public Game(int difficulty, Word[] words, int numberOfWords, Player[] players, int livesPerPlayer) {
+        if (words.length != wordsNeeded(numberOfWords, players.length, livesPerPlayer)) {
+            throw new IllegalArgumentException(
+                    words.length + " words cannot be split among " + players.length + " players");
+        }
         this.difficulty = difficulty;
         this.numberOfWords = numberOfWords;
-        // numberOfWords is per player
-        Word[] words = FileInterfacer.getRandomWords(difficulty, numberOfWords * players.length);
         this.players = players;
         this.livesPerPlayer = livesPerPlayer;
         this.standings = players.clone();
@@ -41,8 +66,30 @@ public class Game {
     }
 
     /**
-     * Divides words in a fair manner among players and calls each players setupGame
-     * method
+     * Helper function for the constructors, checked before any words are drawn.
+     * Returns how many words the game deals
+     * 
+     * @param numberOfWords
+     * @param numPlayers
+     * @param livesPerPlayer
+     * @return
+     */
+    private static int wordsNeeded(int numberOfWords, int numPlayers, int livesPerPlayer) {
+        if (numPlayers == 0 || numberOfWords <= 0 || livesPerPlayer <= 0) {
+            throw new IllegalArgumentException("A game needs players with at least one word and one life each, got "
+                    + numPlayers + " players, " + numberOfWords + " words and " + livesPerPlayer + " lives");
+        }
+        if ((long) numberOfWords * numPlayers > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    numberOfWords + " words for each of " + numPlayers + " players are too many");
+        }
+        return numberOfWords * numPlayers;
+    }
+
+    /**
+     * Deals words round robin among players and calls each players setupGame
+     * method. Not fair: the earlier seat gets the rarer word of every round(see
+     * SimulationStats.getSeatWinRate)
      * 
      * @param words
      */
@@ -54,9 +101,10 @@ public class Game {
             return;
         }
         /**
-         * Words are sorted by frequency. In order to ensure that every player receives
-         * a set of words that has equal frequency, words are divided in the following
-         * manner
+         * Words are sorted by frequency, rarest first, and dealt round robin in the
+         * following manner. Every player gets one word from each stretch of similar
+         * frequency, but player 0 always gets the rarest, highest scoring word of
+         * the stretch and the last player the most common one
          * 
          * Example: 2 players 3 words. Words Array will have a length of 2*3 = 6
          * 
@@ -78,7 +126,7 @@ public class Game {
             int k = i;
             for (int j = 0; j < numberOfWords; j++) {
                 currWordArray[j] = words[k];
-                k += numberOfWords - 1;
+                k += players.length;
             }
             currentPlayer.setupNewGame(currWordArray);
         }
@@ -90,6 +138,10 @@ public class Game {
 
     public static void main(String[] args) {
         // Main method does the game setup since that code has not been written yet
+        // Words are loaded up front so creating the game does not touch the disk
+        // Players here can ask for hints, so they are looked up while the game starts
+        HintService.getDefault().setPrefetchEnabled(true);
+        int numDifficulties = FileInterfacer.getCorpus().getNumDifficulties();
         System.out.println("How many players (1-5)?");
         int numPlayers = Integer.parseInt(myObj.nextLine());
         Player[] players = new Player[numPlayers];
@@ -101,7 +153,7 @@ public class Game {
             i++;
         }
 
-        System.out.println("What difficulty(1-3)?");
+        System.out.println("What difficulty(1-" + numDifficulties + ")?");
         int difficulty = Integer.parseInt(myObj.nextLine()) - 1;
         System.out.println("How many words per player(1-3)?");
         int numberOfWords = Integer.parseInt(myObj.nextLine());
@@ -109,82 +161,189 @@ public class Game {
         int numberOfLives = Integer.parseInt(myObj.nextLine());
 
         Game currentGame = new Game(difficulty, numberOfWords, players, numberOfLives);
-        currentGame.runGame();
+        currentGame.addListener(new ConsoleGameListener(currentGame));
+        currentGame.runGame(new ConsoleGuessSource(myObj));
+        myObj.close(); // no need to read from input anymore
+
+    }
+
+    // Getters
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public int getNumberOfWords() {
+        return numberOfWords;
+    }
+
+    public int getLivesPerPlayer() {
+        return livesPerPlayer;
+    }
 
+    public Player[] getPlayers() {
+        return players.clone();
     }
 
     /**
-     * Main game thread
+     * Returns the player whose turn it is, or null once the game is over
+     * 
+     * @return
      */
-    public void runGame() {
-        Boolean done = false; // game terminates when all players are eliminated
-        int rounds = 0;
-        while (!done) {
-            // i tracks player number
-            int i = 0;
-            while (i < players.length) {
-                Player currentPlayer = players[i];
-                if (!currentPlayer.isStillPlaying()) {
-                    System.out.println("Skipping player " + currentPlayer.getDisplayString());
-                    i++;
-                    continue;
-                }
-                // Outputting current display string
-                Word currentWord = currentPlayer.getCurrentWord();
+    public Player getCurrentPlayer() {
+        return gameOver ? null : players[turn];
+    }
 
-                if (DEBUG_MODE) {
-                    System.out.println(currentWord.getWordString());
-                }
+    public int getRounds() {
+        return rounds;
+    }
 
-                System.out.println(currentPlayer.getDisplayString() + ", enter your guess: ");
-                // prints string with dashes
-                System.out.println(currentWord.getDisplayString(currentPlayer.getCurrentGuessedChars()));
+    public boolean isGameOver() {
+        return gameOver;
+    }
 
-                String readLine = myObj.nextLine();
-                System.out.println("");
-                char currentChar = readLine.charAt(0);
+    public ScoringPolicy getScoringPolicy() {
+        return scoringPolicy;
+    }
 
-                // once input is read, it needs to be processed
-                cyclePlayer(currentPlayer, currentWord, currentChar);
-                i++;
-            }
-            // assuming that all players are done
-            done = true;
-            for (Player player : players) {
-                if (player.isStillPlaying()) {
-                    // one is still playing, so we continue the game
-                    done = false;
-                    break;
-                }
+    /**
+     * Replaces the scoring rules, ClassicScoring by default. Should be called
+     * before the first guess so every guess is scored the same way
+     * 
+     * @param scoringPolicy
+     */
+    public void setScoringPolicy(ScoringPolicy scoringPolicy) {
+        this.scoringPolicy = scoringPolicy;
+    }
+
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Main game thread. Asks source for the current player's guess until every
+     * player is done
+     * 
+     * @param source
+     */
+    public void runGame(GuessSource source) {
+        while (!gameOver) {
+            Player currentPlayer = players[turn];
+            Word currentWord = currentPlayer.getCurrentWord();
+            for (GameListener listener : listeners) {
+                listener.onTurn(currentPlayer, currentWord);
             }
-            rounds++;
-            System.out.println("End of round " + rounds + "\n");
+            applyGuess(currentPlayer.getPlayerId(), source.nextGuess(currentPlayer, currentWord));
         }
-        endGame(rounds); // print standings
-        myObj.close(); // no need to read from input anymore
     }
 
     /**
-     * Main thread for each player
+     * Applies one guess by the player whose turn it is, then passes the turn on.
+     * Throws IllegalStateException if the game is over or it is not playerId's
+     * turn
+     * 
+     * @param playerId
+     * @param currentChar
+     * @return
+     */
+    public GuessResult applyGuess(int playerId, char currentChar) {
+        if (gameOver) {
+            throw new IllegalStateException("The game is over");
+        }
+        Player currentPlayer = players[turn];
+        if (currentPlayer.getPlayerId() != playerId) {
+            throw new IllegalStateException(
+                    "It is player " + currentPlayer.getPlayerId() + "'s turn, not player " + playerId + "'s");
+        }
+
+        GuessResult result = cyclePlayer(currentPlayer, currentPlayer.getCurrentWord(), currentChar);
+        for (GameListener listener : listeners) {
+            listener.onGuess(currentPlayer, result);
+        }
+        if (result.isWordDone()) {
+            recordWordDone(currentPlayer, result);
+            wordDone(currentPlayer);
+        }
+        advanceTurn();
+        Player next = getCurrentPlayer();
+        for (GameListener listener : listeners) {
+            listener.onTurnPassed(next);
+        }
+        return result;
+    }
+
+    /**
+     * Puts the turn back into a saved state(see GameStateCodec). Players are
+     * restored separately
+     * 
+     * @param turn
+     * @param rounds
+     * @param gameOver
+     */
+    void restoreTurn(int turn, int rounds, boolean gameOver) {
+        if (turn < 0 || turn >= players.length) {
+            throw new IllegalArgumentException("No player at " + turn);
+        }
+        this.turn = turn;
+        this.rounds = rounds;
+        this.gameOver = gameOver;
+    }
+
+    /**
+     * Returns the index into getPlayers of whose turn it is
+     * 
+     * @return
+     */
+    int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Main thread for each player. Updates the player for the guess and works out
+     * what it led to, without moving on to the next word. Timed for GameMetrics
+     * and recorded as a JFR event
      * 
      * @param currentPlayer
      * @param currentWord
      * @param currentChar
+     * @return
      */
 
-    private void cyclePlayer(Player currentPlayer, Word currentWord, char currentChar) {
-        // First, checking if character has already been guessed
-        if (currentPlayer.addChar(currentChar)) {
-            if (currentWord.hasChar(currentChar)) {
-                playerGuessedCorrectly(currentPlayer, currentWord, currentChar);
-            } else {
-                playerGuessedIncorrectly(currentPlayer, currentWord, currentChar);
-            }
-        } else {
-            System.out.println("Sorry " + currentPlayer.getDisplayString() + ", you had entered " + currentChar
-                    + " previously. Skipping your turn!");
+    private GuessResult cyclePlayer(Player currentPlayer, Word currentWord, char currentChar) {
+        GameEvents.Guess event = new GameEvents.Guess();
+        event.begin();
+        long start = GameMetrics.getDefault().startGuessTimer();
+        GuessResult result = checkGuess(currentPlayer, currentWord, currentChar);
+        GameMetrics.getDefault().recordGuess(result, start);
+        if (event.shouldCommit()) {
+            event.playerId = result.getPlayerId();
+            event.guess = currentChar;
+            event.outcome = result.getOutcome().name();
+            event.occurrences = result.getOccurrences();
+            event.scoreDelta = result.getScoreDelta();
+            event.commit();
         }
+        return result;
+    }
 
+    /**
+     * Helper function for cyclePlayer, applies the rules
+     * 
+     * @param currentPlayer
+     * @param currentWord
+     * @param currentChar
+     * @return
+     */
+    private GuessResult checkGuess(Player currentPlayer, Word currentWord, char currentChar) {
+        // First, checking if character has already been guessed
+        if (!currentPlayer.addChar(currentChar)) {
+            return new GuessResult(GuessResult.Outcome.REPEATED, currentPlayer.getPlayerId(), currentChar,
+                    currentWord, 0, 0, livesPerPlayer - currentPlayer.getIncorrectGuesses(), false, false, false,
+                    false);
+        }
+        if (currentWord.hasChar(currentChar)) {
+            return playerGuessedCorrectly(currentPlayer, currentWord, currentChar);
+        }
+        return playerGuessedIncorrectly(currentPlayer, currentWord, currentChar);
     }
 
     /**
@@ -193,28 +352,22 @@ public class Game {
      * @param currentPlayer
      * @param currentWord
      * @param currentChar
+     * @return
      */
 
-    private void playerGuessedCorrectly(Player currentPlayer, Word currentWord, char currentChar) {
-        HashSet<Character> guessedChars = currentPlayer.getCurrentGuessedChars();
-        int scoreIncrement = calculateScore(currentWord, currentPlayer);
+    private GuessResult playerGuessedCorrectly(Player currentPlayer, Word currentWord, char currentChar) {
+        int occurrences = currentWord.returnOccurrencesOfChar(currentChar);
+        int scoreIncrement = calculateScore(currentWord, currentPlayer, occurrences);
         currentPlayer.incrementScore(scoreIncrement);
-        currentPlayer.decrementLettersRemaining(currentWord.returnOccurrencesOfChar(currentChar));
+        currentPlayer.decrementLettersRemaining(occurrences);
 
-        System.out.println("Great job! the letter " + currentChar + " is in your word! +" + scoreIncrement);
-        System.out.println(currentWord.getDisplayString(guessedChars));
-        System.out.println(currentPlayer.getCurrentGuessedCharsString()); // prints all previously guessed chars
-
-        if (DEBUG_MODE) {
-            System.out.println("Remaining: " + currentPlayer.getLettersRemaining());
-        }
-
-        if (currentPlayer.getLettersRemaining() <= 0) {
+        boolean wordGuessed = currentPlayer.getLettersRemaining() <= 0;
+        if (wordGuessed) {
             // No more letters left to guess, move onto next word
-            System.out.println("Congrats on guessing " + currentWord.getWordString() + " correctly!");
             currentPlayer.incrementWordsGuessedCorrectly();
-            wordDone(currentPlayer);
         }
+        return finishGuess(GuessResult.Outcome.CORRECT, currentPlayer, currentWord, currentChar, scoreIncrement,
+                occurrences, wordGuessed, false);
     }
 
     /**
@@ -223,39 +376,66 @@ public class Game {
      * @param currentPlayer
      * @param currentWord
      * @param currentChar
+     * @return
      */
 
-    private void playerGuessedIncorrectly(Player currentPlayer, Word currentWord, char currentChar) {
+    private GuessResult playerGuessedIncorrectly(Player currentPlayer, Word currentWord, char currentChar) {
         currentPlayer.incrementIncorrectGuesses();
-        System.out.println(
-                "Sorry " + currentPlayer.getDisplayString() + ", the letter " + currentChar + " is not in the word");
-        System.out.println("You have " + (livesPerPlayer - currentPlayer.getIncorrectGuesses()) + " lives remaining");
-        System.out.println(currentPlayer.getCurrentGuessedCharsString()); // prints all previously guessed chars
 
-        if (currentPlayer.getIncorrectGuesses() >= livesPerPlayer) {
+        boolean wordLost = currentPlayer.getIncorrectGuesses() >= livesPerPlayer;
+        if (wordLost) {
             // No more lives left, move onto next word
-            System.out.println("You have used up all of your guesses!");
-            System.out.println("The word was " + currentWord.getWordString());
             currentPlayer.incrementWordsGuessedIncorrectly();
-            wordDone(currentPlayer);
         }
+        return finishGuess(GuessResult.Outcome.INCORRECT, currentPlayer, currentWord, currentChar, 0, 0, false,
+                wordLost);
+    }
+
+    /**
+     * Helper for playerGuessedCorrectly and playerGuessedIncorrectly. Works out
+     * whether the player and the game are done and builds the result
+     */
+    private GuessResult finishGuess(GuessResult.Outcome outcome, Player currentPlayer, Word currentWord,
+            char currentChar, int scoreIncrement, int occurrences, boolean wordGuessed, boolean wordLost) {
+        boolean playerFinished = (wordGuessed || wordLost) && currentPlayer.getTotalWordsGuessed() >= numberOfWords;
+        boolean lastPlayer = playerFinished;
+        for (Player player : players) {
+            if (player != currentPlayer && player.isStillPlaying()) {
+                lastPlayer = false;
+                break;
+            }
+        }
+        return new GuessResult(outcome, currentPlayer.getPlayerId(), currentChar, currentWord, scoreIncrement,
+                occurrences, livesPerPlayer - currentPlayer.getIncorrectGuesses(), wordGuessed, wordLost,
+                playerFinished, lastPlayer);
     }
 
     /**
-     * Calculates score based on multipliers, word frequency, and how many letters
-     * are remaining
+     * Calculates the score of a correct guess with the scoring policy, before
+     * the guessed letters are taken off the player's remaining letters. Package
+     * private so benchmarks use the real rule
      * 
      * @param currentWord
      * @param currentPlayer
+     * @param occurrences
      * @return
      */
-    private int calculateScore(Word currentWord, Player currentPlayer) {
-        // Less frequent words should have a higher score
-        int score = (int) ((int) SCORE_MULTIPLIER / currentWord.getFrequency());
-        // If the letter is guessed towards the end, then it was not luck(since the word
-        // was almost revealed) and should be rewarded more.
-        score += GUESS_MULTIPLIER / currentPlayer.getLettersRemaining();
-        return score * (difficulty + 1);
+    int calculateScore(Word currentWord, Player currentPlayer, int occurrences) {
+        return scoringPolicy.scoreCorrectGuess(currentWord, currentPlayer.getLettersRemaining(), occurrences,
+                difficulty);
+    }
+
+    // Counts a finished word for GameMetrics and records it as a JFR event
+    private void recordWordDone(Player currentPlayer, GuessResult result) {
+        GameMetrics.getDefault().recordWordDone(result.isWordGuessed());
+        GameEvents.WordCompleted event = new GameEvents.WordCompleted();
+        if (event.shouldCommit()) {
+            event.playerId = result.getPlayerId();
+            event.word = result.getWord().getWordString();
+            event.guessed = result.isWordGuessed();
+            event.incorrectGuesses = currentPlayer.getIncorrectGuesses();
+            event.commit();
+        }
     }
 
     /**
@@ -268,29 +448,50 @@ public class Game {
 
         if (currentPlayer.getTotalWordsGuessed() >= numberOfWords) {
             // Player has attempted to guess all words
-            playerFinished(currentPlayer);
+            currentPlayer.eliminate();
             return;
         }
 
         // Resetting word specific fields
         currentPlayer.setupNewWord();
-        System.out.println(
-                "You have to guess " + (numberOfWords - currentPlayer.getTotalWordsGuessed()) + " more words!");
-        System.out.println("Your lives have reset to " + livesPerPlayer);
-        System.out.println("Your score is " + currentPlayer.getScore());
     }
 
     /**
-     * Executes when a player has attempted to guess all their words
-     * 
-     * @param currentPlayer
+     * Passes the turn to the next player that is still playing, ending rounds and
+     * the game along the way
      */
+    private void advanceTurn() {
+        int i = turn;
+        while (true) {
+            i++;
+            if (i == players.length) {
+                rounds++;
+                for (GameListener listener : listeners) {
+                    listener.onRoundEnd(rounds);
+                }
+                if (!anyStillPlaying()) {
+                    endGame(rounds);
+                    return;
+                }
+                i = 0;
+            }
+            if (players[i].isStillPlaying()) {
+                turn = i;
+                return;
+            }
+            for (GameListener listener : listeners) {
+                listener.onPlayerSkipped(players[i]);
+            }
+        }
+    }
 
-    private void playerFinished(Player currentPlayer) {
-        currentPlayer.eliminate();
-        System.out.println("You guessed " + (currentPlayer.getWordsGuessedCorrectly()) + " out of " + numberOfWords
-                + " words correctly");
-        System.out.println("Your final score is " + currentPlayer.getScore());
+    private boolean anyStillPlaying() {
+        for (Player player : players) {
+            if (player.isStillPlaying()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -300,12 +501,11 @@ public class Game {
      */
 
     private void endGame(int rounds) {
-        System.out.println("This game has concluded after " + rounds + " rounds.");
-        System.out.println("Final Scores: ");
+        gameOver = true;
         // Default implementation of player.compareTo reads ids instead of score
         Arrays.sort(standings, (Player o1, Player o2) -> o2.getScore() - o1.getScore());
-        for (Player player : standings) {
-            System.out.println("    " + player.getDisplayString() + ": " + player.getScore());
+        for (GameListener listener : listeners) {
+            listener.onGameEnd(rounds, standings.clone());
         }
     }
 
@@ -0,0 +1,395 @@
+
+/**
+ * Append-only binary log of everything that happens in the games attached to
+ * it, so games survive a crash and can be rebuilt by GameReplay. One log can
+ * hold any number of games at once, every record carries its game's id.
+ *
+ * Records are collected in a buffer and written with one FileChannel write when
+ * it fills up. Every commit interval a background thread writes what is
+ * buffered and forces it to disk once for all the records since the last
+ * commit(group commit), so a crash loses at most that interval instead of
+ * every guess paying for an fsync. sync() commits right away.
+ *
+ * Record layout: int length of the rest without the checksum, byte type, long
+ * game id, the payload, then a CRC32C of type, id and payload. A torn record at
+ * the end of the file(from a crash) fails its checksum and is cut off when the
+ * log is opened.
+ *
+ * If a game's record cannot be written, the game plays on without its log: it
+ * is reported, marked failed(see hasFailed) and nothing more is logged for it,
+ * so its records stay an unbroken prefix that replays to an earlier state.
+ *
+ * Payloads, all written with DataOutput:
+ * GAME_CREATED     GameStateCodec.writeSetup
+ * GUESS            int player id, char guess
+ * WORD_DONE        int player id, boolean guessed
+ * PLAYER_FINISHED  int player id, int score
+ * SNAPSHOT         GameStateCodec.writeState, right after GAME_CREATED and then
+ *                  every snapshotInterval guesses
+ * GAME_ENDED       int rounds
+ */
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+public class GameEventLog implements Closeable {
+    // Constants
+    public static final byte GAME_CREATED = 1;
+    public static final byte GUESS = 2;
+    public static final byte WORD_DONE = 3;
+    public static final byte PLAYER_FINISHED = 4;
+    public static final byte SNAPSHOT = 5;
+    public static final byte GAME_ENDED = 6;
+
+    private static final int HEADER_BYTES = Integer.BYTES + 1 + Long.BYTES;
+    private static final int CHECKSUM_BYTES = Integer.BYTES;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32C checksum = new CRC32C();
+    private final ScheduledExecutorService committer;
+    private final int snapshotInterval;
+    private long writePosition; // end of the records written to the channel
+    private long nextGameId;
+    private boolean closed;
+    private final HashSet<Long> failedGames = new HashSet<Long>(); // no longer logged, see Recorder.fail
+
+    /**
+     * Receives the records of a log in order, see scan
+     */
+    public interface RecordHandler {
+        void onRecord(long offset, byte type, long gameId, byte[] payload) throws IOException;
+    }
+
+    /**
+     * Opens or creates the log at file. commitIntervalMillis is the most time a
+     * record can wait before it is forced to disk, snapshotInterval how many
+     * guesses a game plays between snapshots(0 for none)
+     * 
+     * @param file
+     * @param commitIntervalMillis
+     * @param snapshotInterval
+     * @throws IOException
+     */
+    public GameEventLog(Path file, long commitIntervalMillis, int snapshotInterval) throws IOException {
+        this.snapshotInterval = snapshotInterval;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long[] maxGameId = new long[1];
+        writePosition = scan(channel, (long offset, byte type, long gameId, byte[] payload) -> maxGameId[0] = Math
+                .max(maxGameId[0], gameId));
+        if (writePosition < channel.size()) {
+            channel.truncate(writePosition);
+        }
+        nextGameId = maxGameId[0] + 1;
+
+        committer = Executors.newSingleThreadScheduledExecutor((Runnable task) -> {
+            Thread thread = new Thread(task, "game-event-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, commitIntervalMillis, commitIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads every complete, intact record of channel from the start and returns
+     * where the last one ends
+     * 
+     * @param channel
+     * @param handler
+     * @return
+     * @throws IOException
+     */
+    public static long scan(FileChannel channel, RecordHandler handler) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel.position(0)), BUFFER_BYTES));
+        CRC32C crc = new CRC32C();
+        long offset = 0;
+        long size = channel.size();
+        while (offset + HEADER_BYTES + CHECKSUM_BYTES <= size) {
+            int length;
+            byte type;
+            long gameId;
+            byte[] payload;
+            try {
+                length = in.readInt();
+                if (length < 1 + Long.BYTES || length > MAX_RECORD_BYTES
+                        || offset + Integer.BYTES + length + CHECKSUM_BYTES > size) {
+                    break;
+                }
+                type = in.readByte();
+                gameId = in.readLong();
+                payload = new byte[length - 1 - Long.BYTES];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(type);
+                updateLong(crc, gameId);
+                crc.update(payload);
+                if (in.readInt() != (int) crc.getValue()) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            handler.onRecord(offset, type, gameId, payload);
+            offset += Integer.BYTES + length + CHECKSUM_BYTES;
+        }
+        return offset;
+    }
+
+    /**
+     * Starts logging game: writes its setup and its state, since a game can be
+     * attached part way through(e.g. one rebuilt by GameReplay), and records
+     * everything that happens to it from now on. Returns the game's id in this
+     * log
+     * 
+     * @param game
+     * @return
+     * @throws IOException
+     */
+    public long attach(Game game) throws IOException {
+        long gameId;
+        synchronized (this) {
+            gameId = nextGameId++;
+        }
+        Recorder recorder = new Recorder(gameId, game);
+        GameStateCodec.writeSetup(game, recorder.out);
+        recorder.append(GAME_CREATED);
+        GameStateCodec.writeState(game, recorder.out);
+        recorder.append(SNAPSHOT);
+        game.addListener(recorder);
+        return gameId;
+    }
+
+    /**
+     * Returns true if a record of the game with gameId could not be written, so
+     * the log stops before the game's end
+     * 
+     * @param gameId
+     * @return
+     */
+    public synchronized boolean hasFailed(long gameId) {
+        return failedGames.contains(gameId);
+    }
+
+    /**
+     * Adds one record to the buffer, writing the buffer out first if the record
+     * does not fit
+     * 
+     * @param type
+     * @param gameId
+     * @param payload
+     * @param length
+     * @throws IOException
+     */
+    public synchronized void append(byte type, long gameId, byte[] payload, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Log is closed");
+        }
+        int recordBytes = HEADER_BYTES + length + CHECKSUM_BYTES;
+        if (recordBytes > buffer.remaining()) {
+            writeBuffer();
+        }
+        checksum.reset();
+        checksum.update(type);
+        updateLong(checksum, gameId);
+        checksum.update(payload, 0, length);
+        if (recordBytes > buffer.capacity()) {
+            // too big to buffer, written on its own
+            ByteBuffer record = ByteBuffer.allocate(recordBytes);
+            putRecord(record, type, gameId, payload, length);
+            record.flip();
+            while (record.hasRemaining()) {
+                writePosition += channel.write(record, writePosition);
+            }
+            return;
+        }
+        putRecord(buffer, type, gameId, payload, length);
+    }
+
+    /**
+     * Writes everything buffered and forces it to disk. Records appended while
+     * the disk is busy wait for the next commit
+     * 
+     * @throws IOException
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            writeBuffer();
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        committer.shutdown();
+        try {
+            // a commit already running has to finish before the channel closes
+            committer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+        synchronized (this) {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Helper function for append and sync. Must hold the lock
+     * 
+     * @throws IOException
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+        buffer.clear();
+    }
+
+    // checksum must already hold type, id and payload
+    private void putRecord(ByteBuffer target, byte type, long gameId, byte[] payload, int length) {
+        target.putInt(1 + Long.BYTES + length).put(type).putLong(gameId).put(payload, 0, length)
+                .putInt((int) checksum.getValue());
+    }
+
+    private static void updateLong(CRC32C crc, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * Listener attached to one game, turns its events into records. Called only
+     * by the thread driving the game, so one payload buffer is reused. Never
+     * throws: a failure inside Game.applyGuess would leave the game half updated
+     */
+    private class Recorder implements GameListener {
+        private final long gameId;
+        private final Game game;
+        private final PayloadBuffer bytes = new PayloadBuffer();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int guesses;
+        private boolean failed; // a record was lost, later ones would not replay
+
+        Recorder(long gameId, Game game) {
+            this.gameId = gameId;
+            this.game = game;
+        }
+
+        @Override
+        public void onGuess(Player player, GuessResult result) {
+            if (failed) {
+                return;
+            }
+            try {
+                out.writeInt(result.getPlayerId());
+                out.writeChar(result.getGuess());
+                append(GUESS);
+                if (result.isWordDone()) {
+                    out.writeInt(result.getPlayerId());
+                    out.writeBoolean(result.isWordGuessed());
+                    append(WORD_DONE);
+                }
+                if (result.isPlayerFinished()) {
+                    out.writeInt(result.getPlayerId());
+                    out.writeInt(player.getScore());
+                    append(PLAYER_FINISHED);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onTurnPassed(Player next) {
+            guesses++;
+            if (failed || next == null || snapshotInterval <= 0 || guesses % snapshotInterval != 0) {
+                return;
+            }
+            try {
+                GameStateCodec.writeState(game, out);
+                append(SNAPSHOT);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onGameEnd(int rounds, Player[] standings) {
+            if (failed) {
+                return;
+            }
+            try {
+                out.writeInt(rounds);
+                append(GAME_ENDED);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Appends what was written to out as a record of type and empties out
+         * 
+         * @param type
+         * @throws IOException
+         */
+        private void append(byte type) throws IOException {
+            out.flush();
+            GameEventLog.this.append(type, gameId, bytes.array(), bytes.size());
+            bytes.reset();
+        }
+
+        /**
+         * Helper function for the listener methods. Stops logging the game, which
+         * plays on, and reports why
+         * 
+         * @param e
+         */
+        private void fail(IOException e) {
+            failed = true;
+            bytes.reset();
+            synchronized (GameEventLog.this) {
+                failedGames.add(gameId);
+            }
+            System.err.println("Game " + gameId + " is no longer logged: " + e);
+        }
+    }
+
+    /**
+     * ByteArrayOutputStream that hands out its array instead of a copy, append
+     * copies the bytes into the log buffer anyway
+     */
+    private static class PayloadBuffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+
+/**
+ * Java Flight Recorder events for the game's hot paths. They cost next to
+ * nothing unless a recording is running, so they are always compiled in. To
+ * record: java -XX:StartFlightRecording=filename=game.jfr ... and open the file
+ * in JDK Mission Control, or print it with jfr print --categories Hangman.
+ *
+ * Usage follows the JFR pattern: create, begin(), do the work, then set the
+ * fields and commit() only if shouldCommit() says the event is wanted.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public final class GameEvents {
+    // Constants
+    private static final String CATEGORY = "Hangman";
+
+    private GameEvents() {
+    }
+
+    @Name("hangman.GameSetup")
+    @Label("Game Setup")
+    @Category(CATEGORY)
+    @Description("Words drawn for a new game")
+    static class GameSetup extends Event {
+        @Label("Difficulty")
+        int difficulty;
+
+        @Label("Words")
+        int words;
+
+        @Label("Sampler")
+        String sampler;
+    }
+
+    @Name("hangman.Guess")
+    @Label("Guess")
+    @Category(CATEGORY)
+    @Description("One guess checked and scored")
+    static class Guess extends Event {
+        @Label("Player Id")
+        int playerId;
+
+        @Label("Guess")
+        char guess;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Occurrences")
+        int occurrences;
+
+        @Label("Score Delta")
+        int scoreDelta;
+    }
+
+    @Name("hangman.WordCompleted")
+    @Label("Word Completed")
+    @Category(CATEGORY)
+    @Description("A player guessed a word or ran out of lives on it")
+    static class WordCompleted extends Event {
+        @Label("Player Id")
+        int playerId;
+
+        @Label("Word")
+        String word;
+
+        @Label("Guessed")
+        boolean guessed;
+
+        @Label("Incorrect Guesses")
+        int incorrectGuesses;
+    }
+
+    @Name("hangman.HintLookup")
+    @Label("Hint Lookup")
+    @Category(CATEGORY)
+    @Description("A request to the word API, from sending it to parsing the reply")
+    static class HintLookup extends Event {
+        @Label("Word")
+        String word;
+
+        @Label("Field")
+        String field;
+
+        @Label("Results")
+        int results;
+
+        @Label("Failed")
+        boolean failed;
+    }
+}
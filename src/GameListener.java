@@ -0,0 +1,64 @@
+
+/**
+ * Output side of a Game. Every method does nothing by default, so listeners
+ * only implement the events they care about. Methods are called on the thread
+ * that drives the game.
+ */
+
+public interface GameListener {
+
+    /**
+     * Called when it becomes player's turn to guess a letter of word
+     * 
+     * @param player
+     * @param word
+     */
+    default void onTurn(Player player, Word word) {
+    }
+
+    /**
+     * Called after a guess has been scored but before the player moves on to
+     * their next word, so the player still shows the word that was guessed
+     * 
+     * @param player
+     * @param result
+     */
+    default void onGuess(Player player, GuessResult result) {
+    }
+
+    /**
+     * Called last for every guess, once the turn has passed to next(null if the
+     * game is over). Everything about the guess has been applied, so this is
+     * where the game can be saved
+     * 
+     * @param next
+     */
+    default void onTurnPassed(Player next) {
+    }
+
+    /**
+     * Called when a player with no words left is passed over
+     * 
+     * @param player
+     */
+    default void onPlayerSkipped(Player player) {
+    }
+
+    /**
+     * Called after every player has had a turn in the round
+     * 
+     * @param round
+     */
+    default void onRoundEnd(int round) {
+    }
+
+    /**
+     * Called once when no player has words left. standings are sorted by score,
+     * highest first
+     * 
+     * @param rounds
+     * @param standings
+     */
+    default void onGameEnd(int rounds, Player[] standings) {
+    }
+}
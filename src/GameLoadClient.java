@@ -0,0 +1,110 @@
+
+/**
+ * Load generator for GameServer. Plays many single player sessions at once over
+ * localhost, each guessing letters in English frequency order, and reports
+ * sessions per second, sessions per core and guess round trip percentiles.
+ *
+ * Arguments: port(or "local" to start a server in this JVM), total sessions,
+ * sessions in flight at once
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+public class GameLoadClient {
+    // Constants
+    private static final String GUESS_ORDER = "etaoinshrdlcumwfgypbvkjxqz";
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "local";
+        int totalSessions = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        GameServer localServer = null;
+        int port;
+        if (target.equals("local")) {
+            localServer = new GameServer(new SessionManager(), 0);
+            localServer.start();
+            port = localServer.getPort();
+        } else {
+            port = Integer.parseInt(target);
+        }
+
+        LatencyHistogram roundTrips = new LatencyHistogram();
+        LongAdder failures = new LongAdder();
+        Semaphore permits = new Semaphore(concurrency);
+        ExecutorService clients = SessionManager.newSessionExecutor();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < totalSessions; i++) {
+            permits.acquire();
+            clients.execute(() -> {
+                try {
+                    playSession(port, roundTrips);
+                } catch (IOException e) {
+                    failures.increment();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+        permits.acquire(concurrency);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clients.shutdown();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Sessions: %d in %.2fs (%d failed)%n", totalSessions, seconds, failures.sum());
+        System.out.printf("Sessions/s: %.0f, per core: %.0f%n", totalSessions / seconds,
+                totalSessions / seconds / cores);
+        System.out.println("Guess round trip " + roundTrips);
+        if (localServer != null) {
+            System.out.println("Server guess latency " + localServer.getManager().getGuessLatency());
+            localServer.stop();
+        }
+    }
+
+    /**
+     * Plays one whole session and records the round trip of every guess
+     * 
+     * @param port
+     * @param roundTrips
+     * @throws IOException
+     */
+    private static void playSession(int port, LatencyHistogram roundTrips) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            out.write("NEW 1 2 8 bot\n".getBytes(StandardCharsets.US_ASCII));
+
+            int nextGuess = 0;
+            long sentAt = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("TURN")) {
+                    sentAt = System.nanoTime();
+                    out.write(("GUESS " + GUESS_ORDER.charAt(nextGuess++ % GUESS_ORDER.length()) + "\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                } else if (line.startsWith("RESULT")) {
+                    roundTrips.record(System.nanoTime() - sentAt);
+                } else if (line.startsWith("WORD")) {
+                    nextGuess = 0; // next word starts from the most common letter again
+                } else if (line.startsWith("END")) {
+                    return;
+                } else if (line.startsWith("ERROR")) {
+                    throw new IOException(line);
+                }
+            }
+            throw new IOException("Server closed the session early");
+        }
+    }
+}
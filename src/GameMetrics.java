@@ -0,0 +1,254 @@
+
+/**
+ * Process wide counters and latency histograms for the hot paths: game setup,
+ * guesses, finished words and word API requests. Counters are LongAdders and
+ * histograms are LatencyHistograms, so recording never blocks. A guess takes
+ * about as long as reading the clock, so only one guess in GUESS_SAMPLE_RATE is
+ * timed; every guess is still counted. Everything can be switched off at
+ * runtime(or with -Dhangman.metrics=false), after which recording is one
+ * volatile read.
+ *
+ * Read through JMX(see register and GameMetricsMXBean) or toString.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class GameMetrics implements GameMetricsMXBean {
+    // Constants
+    public static final String OBJECT_NAME = "hangman:type=GameMetrics";
+    public static final int GUESS_SAMPLE_RATE = 64;
+
+    private static final GameMetrics DEFAULT = new GameMetrics();
+
+    private volatile boolean enabled = Boolean.parseBoolean(System.getProperty("hangman.metrics", "true"));
+
+    private final LongAdder gamesSetUp = new LongAdder();
+    private final LongAdder correctGuesses = new LongAdder();
+    private final LongAdder incorrectGuesses = new LongAdder();
+    private final LongAdder repeatedGuesses = new LongAdder();
+    private final LongAdder wordsGuessed = new LongAdder();
+    private final LongAdder wordsLost = new LongAdder();
+    private final LongAdder hintRequestFailures = new LongAdder();
+    private final LatencyHistogram setupLatency = new LatencyHistogram();
+    private final LatencyHistogram guessLatency = new LatencyHistogram();
+    private final LatencyHistogram hintRequestLatency = new LatencyHistogram();
+
+    public static GameMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Makes the default metrics visible to JMX clients. Does nothing if they are
+     * already registered
+     */
+    public static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(DEFAULT, name);
+            }
+        } catch (JMException e) {
+            // metrics are optional, the game runs the same without them
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns System.nanoTime() to pass to the record methods, or 0 if metrics
+     * are off so no clock is read
+     * 
+     * @return
+     */
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Same as startTimer, but only for one call in GUESS_SAMPLE_RATE, the others
+     * get 0
+     * 
+     * @return
+     */
+    public long startGuessTimer() {
+        return enabled && ThreadLocalRandom.current().nextInt(GUESS_SAMPLE_RATE) == 0 ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records words drawn for a game, start is from startTimer
+     * 
+     * @param start
+     */
+    public void recordSetup(long start) {
+        if (enabled && start != 0) {
+            gamesSetUp.increment();
+            setupLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a checked guess, start is from startGuessTimer(0 if it was not
+     * timed)
+     * 
+     * @param result
+     * @param start
+     */
+    public void recordGuess(GuessResult result, long start) {
+        if (!enabled) {
+            return;
+        }
+        if (start != 0) {
+            guessLatency.record(System.nanoTime() - start);
+        }
+        switch (result.getOutcome()) {
+            case CORRECT:
+                correctGuesses.increment();
+                break;
+            case INCORRECT:
+                incorrectGuesses.increment();
+                break;
+            default:
+                repeatedGuesses.increment();
+                break;
+        }
+    }
+
+    public void recordWordDone(boolean guessed) {
+        if (enabled) {
+            (guessed ? wordsGuessed : wordsLost).increment();
+        }
+    }
+
+    /**
+     * Records a finished word API request, start is from startTimer
+     * 
+     * @param start
+     * @param failed
+     */
+    public void recordHintRequest(long start, boolean failed) {
+        if (!enabled || start == 0) {
+            return;
+        }
+        hintRequestLatency.record(System.nanoTime() - start);
+        if (failed) {
+            hintRequestFailures.increment();
+        }
+    }
+
+    // Getters
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public long getGamesSetUp() {
+        return gamesSetUp.sum();
+    }
+
+    @Override
+    public long getGuesses() {
+        return correctGuesses.sum() + incorrectGuesses.sum() + repeatedGuesses.sum();
+    }
+
+    @Override
+    public long getCorrectGuesses() {
+        return correctGuesses.sum();
+    }
+
+    @Override
+    public long getIncorrectGuesses() {
+        return incorrectGuesses.sum();
+    }
+
+    @Override
+    public long getRepeatedGuesses() {
+        return repeatedGuesses.sum();
+    }
+
+    @Override
+    public long getWordsGuessed() {
+        return wordsGuessed.sum();
+    }
+
+    @Override
+    public long getWordsLost() {
+        return wordsLost.sum();
+    }
+
+    @Override
+    public long getHintRequests() {
+        return hintRequestLatency.getCount();
+    }
+
+    @Override
+    public long getHintRequestFailures() {
+        return hintRequestFailures.sum();
+    }
+
+    @Override
+    public double getSetupMeanMicros() {
+        return setupLatency.getMeanNanos() / 1000;
+    }
+
+    @Override
+    public double getSetupP99Micros() {
+        return setupLatency.getPercentileNanos(99) / 1000.0;
+    }
+
+    @Override
+    public double getGuessMeanMicros() {
+        return guessLatency.getMeanNanos() / 1000;
+    }
+
+    @Override
+    public double getGuessP99Micros() {
+        return guessLatency.getPercentileNanos(99) / 1000.0;
+    }
+
+    @Override
+    public double getHintRequestMeanMicros() {
+        return hintRequestLatency.getMeanNanos() / 1000;
+    }
+
+    @Override
+    public double getHintRequestP99Micros() {
+        return hintRequestLatency.getPercentileNanos(99) / 1000.0;
+    }
+
+    // Setters
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        gamesSetUp.reset();
+        correctGuesses.reset();
+        incorrectGuesses.reset();
+        repeatedGuesses.reset();
+        wordsGuessed.reset();
+        wordsLost.reset();
+        hintRequestFailures.reset();
+        setupLatency.reset();
+        guessLatency.reset();
+        hintRequestLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "Games set up: " + getGamesSetUp() + ", setup " + setupLatency + "\n"
+                + "Guesses: " + getCorrectGuesses() + " correct, " + getIncorrectGuesses() + " incorrect, "
+                + getRepeatedGuesses() + " repeated, sampled guess " + guessLatency + "\n"
+                + "Words: " + getWordsGuessed() + " guessed, " + getWordsLost() + " lost\n"
+                + "Hint requests: " + getHintRequests() + " (" + getHintRequestFailures() + " failed), request "
+                + hintRequestLatency;
+    }
+}
@@ -0,0 +1,47 @@
+
+/**
+ * Management interface of GameMetrics, shown by JConsole and other JMX clients
+ * under hangman:type=GameMetrics. Latencies are in microseconds.
+ */
+
+public interface GameMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getGamesSetUp();
+
+    long getGuesses();
+
+    long getCorrectGuesses();
+
+    long getIncorrectGuesses();
+
+    long getRepeatedGuesses();
+
+    long getWordsGuessed();
+
+    long getWordsLost();
+
+    long getHintRequests();
+
+    long getHintRequestFailures();
+
+    double getSetupMeanMicros();
+
+    double getSetupP99Micros();
+
+    double getGuessMeanMicros();
+
+    double getGuessP99Micros();
+
+    double getHintRequestMeanMicros();
+
+    double getHintRequestP99Micros();
+
+    /**
+     * Sets every counter and histogram back to zero
+     */
+    void reset();
+}
@@ -0,0 +1,159 @@
+/**
+ * Rebuilds games from a GameEventLog. Each game starts from its latest
+ * snapshot and only the guesses logged after it are played again, through the
+ * real rules, so a rebuilt game is exactly where it was when the log was last
+ * committed. Games that had not ended can be registered with a SessionManager
+ * and played on.
+ *
+ * Arguments: log file, then optionally a game id to rebuild just that game and
+ * --full to ignore the snapshots taken during play and replay every guess since
+ * the game was attached(a check of the snapshots)
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class GameReplay {
+
+    /**
+     * Where a game's replay starts
+     */
+    private static class Start {
+        byte[] setup;
+        boolean justCreated = true; // no record after the setup was read yet
+        byte[] snapshot; // null if the game has none
+        long snapshotOffset = -1; // guesses at or before this are already in the snapshot
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path log = Paths.get(args[0]);
+        long gameId = -1;
+        boolean full = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--full")) {
+                full = true;
+            } else {
+                gameId = Long.parseLong(args[i]);
+            }
+        }
+        Map<Long, Game> games = replay(log, gameId, !full);
+        for (Map.Entry<Long, Game> entry : games.entrySet()) {
+            Game game = entry.getValue();
+            StringBuilder line = new StringBuilder();
+            line.append("Game ").append(entry.getKey()).append(game.isGameOver() ? " ended" : " in progress")
+                    .append(" after ").append(game.getRounds()).append(" rounds:");
+            for (Player player : game.getPlayers()) {
+                line.append(' ').append(player.getDisplayString()).append('=').append(player.getScore());
+            }
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Rebuilds every game in log
+     * 
+     * @param log
+     * @return games by their id in the log
+     * @throws IOException
+     */
+    public static Map<Long, Game> replay(Path log) throws IOException {
+        return replay(log, -1, true);
+    }
+
+    /**
+     * Rebuilds the game with gameId(every game if gameId is -1). If
+     * useSnapshots is false every guess is replayed from the start
+     * 
+     * @param log
+     * @param gameId
+     * @param useSnapshots
+     * @return games by their id in the log
+     * @throws IOException
+     */
+    public static Map<Long, Game> replay(Path log, long gameId, boolean useSnapshots) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            // First pass: where each game starts
+            TreeMap<Long, Start> starts = new TreeMap<Long, Start>();
+            GameEventLog.scan(channel, (long offset, byte type, long id, byte[] payload) -> {
+                if (gameId != -1 && id != gameId) {
+                    return;
+                }
+                if (type == GameEventLog.GAME_CREATED) {
+                    Start start = new Start();
+                    start.setup = payload;
+                    starts.put(id, start);
+                } else if (starts.containsKey(id)) {
+                    Start start = starts.get(id);
+                    // The snapshot right after the setup is the state the game was attached in,
+                    // which may be part way through, so even a full replay starts from it
+                    if (type == GameEventLog.SNAPSHOT && (useSnapshots || start.justCreated)) {
+                        start.snapshot = payload;
+                        start.snapshotOffset = offset;
+                    }
+                    start.justCreated = false;
+                }
+            });
+
+            TreeMap<Long, Game> games = new TreeMap<Long, Game>();
+            for (Map.Entry<Long, Start> entry : starts.entrySet()) {
+                Start start = entry.getValue();
+                Game game = GameStateCodec.readSetup(input(start.setup));
+                if (start.snapshot != null) {
+                    GameStateCodec.readState(game, input(start.snapshot));
+                }
+                games.put(entry.getKey(), game);
+            }
+
+            // Second pass: the guesses after each start, checked against what was logged
+            GameEventLog.scan(channel, (long offset, byte type, long id, byte[] payload) -> {
+                Game game = games.get(id);
+                if (game == null || offset <= starts.get(id).snapshotOffset) {
+                    return;
+                }
+                DataInputStream in = input(payload);
+                switch (type) {
+                    case GameEventLog.GUESS:
+                        game.applyGuess(in.readInt(), in.readChar());
+                        break;
+                    case GameEventLog.PLAYER_FINISHED:
+                        int playerId = in.readInt();
+                        int score = in.readInt();
+                        if (findPlayer(game, playerId).getScore() != score) {
+                            throw new IOException("Replayed score of player " + playerId + " in game " + id
+                                    + " does not match the log");
+                        }
+                        break;
+                    case GameEventLog.GAME_ENDED:
+                        if (!game.isGameOver()) {
+                            throw new IOException("Game " + id + " ended in the log but not in the replay");
+                        }
+                        break;
+                    default:
+                        // setup and snapshots were handled in the first pass, word ends follow from guesses
+                        break;
+                }
+            });
+            return games;
+        }
+    }
+
+    private static DataInputStream input(byte[] payload) {
+        return new DataInputStream(new ByteArrayInputStream(payload));
+    }
+
+    private static Player findPlayer(Game game, int playerId) throws IOException {
+        for (Player player : game.getPlayers()) {
+            if (player.getPlayerId() == playerId) {
+                return player;
+            }
+        }
+        throw new IOException("No player " + playerId);
+    }
+}
@@ -0,0 +1,336 @@
+
+/**
+ * TCP server hosting many games at once with a line based protocol. Every
+ * connection plays one session, on its own session thread(see SessionManager).
+ *
+ * Client to server, one command per line:
+ * NEW difficulty wordsPerPlayer lives name [name...]   difficulty starts at 1
+ * GUESS c
+ * STATS
+ * METRICS
+ * TOP k
+ * RANK playerId
+ * QUIT
+ *
+ * Server to client:
+ * SESSION id
+ * TURN playerId display
+ * RESULT REPEATED|CORRECT|INCORRECT playerId c scoreDelta livesRemaining display
+ * WORD GUESSED|LOST playerId word
+ * FINISHED playerId score
+ * ROUND n
+ * END rounds playerId:score ...
+ * STATS active started finished guessLatencyP50us guessLatencyP99us
+ * METRICS guesses correct incorrect repeated wordsGuessed wordsLost guessP99us hintRequests hintFailures
+ * TOP playerId:score ...
+ * RANK playerId rank score      rank is -1 for unknown players
+ * ERROR message
+ *
+ * Arguments: port, then optionally a GameEventLog file every game is logged to.
+ * With -Dhangman.calibrate.seconds=n, difficulty buckets are recalibrated from
+ * play every n seconds(see DifficultyCalibrator)
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+public class GameServer {
+    // Constants
+    public static final int DEFAULT_PORT = 7777;
+
+    private final SessionManager manager;
+    private final ServerSocket serverSocket;
+
+    /**
+     * Binds to port on localhost(0 picks a free port)
+     * 
+     * @param manager
+     * @param port
+     * @throws IOException
+     */
+    public GameServer(SessionManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public SessionManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Starts accepting connections on a background thread
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::acceptLoop, "game-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+        manager.shutdown();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        FileInterfacer.getCorpus();
+        GameMetrics.register();
+
+        SessionManager manager = new SessionManager();
+        if (args.length > 1) {
+            // games survive a crash, see GameReplay
+            manager.setEventLog(new GameEventLog(Paths.get(args[1]), 50, 32));
+        }
+        long calibrateSeconds = Long.getLong("hangman.calibrate.seconds", 0);
+        if (calibrateSeconds > 0) {
+            DifficultyCalibrator calibrator = new DifficultyCalibrator();
+            calibrator.start(calibrateSeconds, TimeUnit.SECONDS);
+            manager.setCalibrator(calibrator);
+        }
+        GameServer server = new GameServer(manager, port);
+        System.out.println("Listening on port " + server.getPort());
+        server.acceptLoop();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                manager.execute(() -> handleConnection(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads commands until the client asks for a game, then plays it
+     * 
+     * @param socket
+     */
+    private void handleConnection(Socket socket) {
+        try (Socket currSocket = socket) {
+            currSocket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(currSocket.getInputStream(), StandardCharsets.US_ASCII));
+            Connection connection = new Connection(in, new BufferedOutputStream(currSocket.getOutputStream()));
+            connection.serve();
+        } catch (IOException | UncheckedIOException e) {
+            // the client went away, nothing left to clean up
+        }
+    }
+
+    /**
+     * One client connection. Acts as the GuessSource and GameListener of its
+     * session, so the turn loop reads guesses straight from the socket
+     */
+    private class Connection implements GuessSource, GameListener {
+        private final BufferedReader in;
+        private final OutputStream out;
+        private long guessStart; // when the guess being handled arrived
+
+        private Connection(BufferedReader in, OutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        private void serve() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                switch (parts[0].toUpperCase()) {
+                    case "NEW":
+                        if (startSession(parts)) {
+                            return; // one game per connection
+                        }
+                        break;
+                    case "QUIT":
+                        return;
+                    default:
+                        if (!handleQuery(parts)) {
+                            writeLine("ERROR expected NEW, STATS, METRICS, TOP, RANK or QUIT");
+                        }
+                }
+                out.flush();
+            }
+        }
+
+        /**
+         * Creates the session and runs it on this thread. Returns false if the
+         * command was invalid
+         */
+        private boolean startSession(String[] parts) throws IOException {
+            long sessionId;
+            try {
+                if (parts.length < 5) {
+                    throw new IllegalArgumentException("usage: NEW difficulty wordsPerPlayer lives name [name...]");
+                }
+                String[] names = new String[parts.length - 4];
+                System.arraycopy(parts, 4, names, 0, names.length);
+                sessionId = manager.createSession(Integer.parseInt(parts[1]) - 1, Integer.parseInt(parts[2]),
+                        Integer.parseInt(parts[3]), names);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                writeLine("ERROR " + e.getMessage());
+                return false;
+            }
+            manager.getSession(sessionId).addListener(this);
+            writeLine("SESSION " + sessionId);
+            manager.runSession(sessionId, this);
+            out.flush();
+            return true;
+        }
+
+        @Override
+        public char nextGuess(Player player, Word word) {
+            try {
+                out.flush(); // everything up to the TURN line goes out before waiting
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] parts = line.trim().split("\\s+");
+                    if (parts.length == 2 && parts[0].equalsIgnoreCase("GUESS") && parts[1].length() == 1) {
+                        guessStart = System.nanoTime();
+                        return parts[1].charAt(0);
+                    }
+                    if (parts[0].equalsIgnoreCase("QUIT")) {
+                        break;
+                    }
+                    if (!handleQuery(parts)) {
+                        writeLine("ERROR expected GUESS c");
+                    }
+                    out.flush();
+                }
+                throw new UncheckedIOException(new SocketException("Client left session"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void onTurn(Player player, Word word) {
+            write("TURN " + player.getPlayerId() + " ");
+            writeDisplay(player);
+        }
+
+        @Override
+        public void onGuess(Player player, GuessResult result) {
+            write("RESULT " + result.getOutcome() + " " + player.getPlayerId() + " " + result.getGuess() + " "
+                    + result.getScoreDelta() + " " + result.getLivesRemaining() + " ");
+            writeDisplay(player);
+            if (result.isWordDone()) {
+                writeLine("WORD " + (result.isWordGuessed() ? "GUESSED " : "LOST ") + player.getPlayerId() + " "
+                        + result.getWord().getWordString());
+            }
+            if (result.isPlayerFinished()) {
+                writeLine("FINISHED " + player.getPlayerId() + " " + player.getScore());
+            }
+            manager.getGuessLatency().record(System.nanoTime() - guessStart);
+        }
+
+        @Override
+        public void onRoundEnd(int round) {
+            writeLine("ROUND " + round);
+        }
+
+        @Override
+        public void onGameEnd(int rounds, Player[] standings) {
+            StringBuilder line = new StringBuilder("END ").append(rounds);
+            for (Player player : standings) {
+                line.append(' ').append(player.getPlayerId()).append(':').append(player.getScore());
+            }
+            writeLine(line.toString());
+        }
+
+        /**
+         * Answers STATS, METRICS, TOP and RANK, which are allowed at any time. Returns false
+         * for any other command
+         */
+        private boolean handleQuery(String[] parts) {
+            try {
+                switch (parts[0].toUpperCase()) {
+                    case "STATS":
+                        writeStats();
+                        return true;
+                    case "METRICS":
+                        writeMetrics();
+                        return true;
+                    case "TOP":
+                        StringBuilder line = new StringBuilder("TOP");
+                        for (Leaderboard.Standing standing : manager.getLeaderboard()
+                                .getTop(Integer.parseInt(parts[1]))) {
+                            line.append(' ').append(standing.getPlayerId()).append(':').append(standing.getScore());
+                        }
+                        writeLine(line.toString());
+                        return true;
+                    case "RANK":
+                        int playerId = Integer.parseInt(parts[1]);
+                        Leaderboard leaderboard = manager.getLeaderboard();
+                        writeLine("RANK " + playerId + " " + leaderboard.getRank(playerId) + " "
+                                + leaderboard.getScore(playerId));
+                        return true;
+                    default:
+                        return false;
+                }
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                writeLine("ERROR " + e.getMessage());
+                return true;
+            }
+        }
+
+        private void writeStats() {
+            LatencyHistogram latency = manager.getGuessLatency();
+            writeLine("STATS " + manager.getActiveSessions() + " " + manager.getSessionsStarted() + " "
+                    + manager.getSessionsFinished() + " " + latency.getPercentileNanos(50) / 1000 + " "
+                    + latency.getPercentileNanos(99) / 1000);
+        }
+
+        // Process wide, see GameMetrics
+        private void writeMetrics() {
+            GameMetrics metrics = GameMetrics.getDefault();
+            writeLine("METRICS " + metrics.getGuesses() + " " + metrics.getCorrectGuesses() + " "
+                    + metrics.getIncorrectGuesses() + " " + metrics.getRepeatedGuesses() + " "
+                    + metrics.getWordsGuessed() + " " + metrics.getWordsLost() + " "
+                    + (long) metrics.getGuessP99Micros() + " " + metrics.getHintRequests() + " "
+                    + metrics.getHintRequestFailures());
+        }
+
+        // The display buffer is already ASCII, so it is written as it is
+        private void writeDisplay(Player player) {
+            try {
+                player.writeDisplay(out);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeLine(String line) {
+            write(line);
+            write("\n");
+        }
+
+        private void write(String text) {
+            try {
+                out.write(text.getBytes(StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+
+/**
+ * Writes games to DataOutput and reads them back, for the event log
+ * (GameEventLog) and anything else that has to move a game out of memory.
+ *
+ * A game is saved in two parts. The setup never changes: difficulty, lives,
+ * players and the words each player was dealt, stored as text and frequency so
+ * the game can be rebuilt even after the corpus changes. The state changes with
+ * every guess: whose turn it is and each player's progress. Scoring policies
+ * are not saved, rebuilt games use ClassicScoring.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class GameStateCodec {
+    // Constants
+    private static final int VERSION = 1;
+
+    /**
+     * Writes everything needed to create the game again as it was dealt
+     * 
+     * @param game
+     * @param out
+     * @throws IOException
+     */
+    public static void writeSetup(Game game, DataOutput out) throws IOException {
+        Player[] players = game.getPlayers();
+        out.writeByte(VERSION);
+        out.writeInt(game.getDifficulty());
+        out.writeInt(game.getNumberOfWords());
+        out.writeInt(game.getLivesPerPlayer());
+        out.writeInt(players.length);
+        for (Player player : players) {
+            out.writeInt(player.getPlayerId());
+            out.writeUTF(player.getDisplayString());
+            for (Word word : player.getWords()) {
+                out.writeUTF(word.getWordString());
+                out.writeDouble(word.getFrequency());
+            }
+        }
+    }
+
+    /**
+     * Creates a new game from what writeSetup wrote, at its first turn
+     * 
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static Game readSetup(DataInput in) throws IOException {
+        checkVersion(in);
+        int difficulty = in.readInt();
+        int numberOfWords = in.readInt();
+        int livesPerPlayer = in.readInt();
+        int numPlayers = in.readInt();
+        Player[] players = new Player[numPlayers];
+        // dealt back the way Game.setUpPlayers deals them out
+        Word[] words = new Word[numberOfWords * numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            int id = in.readInt();
+            players[i] = new Player(in.readUTF(), id);
+            for (int j = 0; j < numberOfWords; j++) {
+                words[j * numPlayers + i] = new Word(in.readUTF(), in.readDouble());
+            }
+        }
+        return new Game(difficulty, words, numberOfWords, players, livesPerPlayer);
+    }
+
+    /**
+     * Writes whose turn it is and every player's progress. Only valid between
+     * guesses, see GameListener.onTurnPassed
+     * 
+     * @param game
+     * @param out
+     * @throws IOException
+     */
+    public static void writeState(Game game, DataOutput out) throws IOException {
+        Player[] players = game.getPlayers();
+        out.writeByte(VERSION);
+        out.writeInt(game.getTurn());
+        out.writeInt(game.getRounds());
+        out.writeBoolean(game.isGameOver());
+        out.writeInt(players.length);
+        for (Player player : players) {
+            out.writeInt(player.getScore());
+            out.writeInt(player.getWordsGuessedCorrectly());
+            out.writeInt(player.getWordsGuessedIncorrectly());
+            out.writeBoolean(player.isStillPlaying());
+            out.writeInt(player.getGuessedMask());
+            out.writeInt(player.getIncorrectGuesses());
+            out.writeInt(player.getLettersRemaining());
+        }
+    }
+
+    /**
+     * Puts game, created by readSetup from the same game's setup, into the state
+     * writeState wrote
+     * 
+     * @param game
+     * @param in
+     * @throws IOException
+     */
+    public static void readState(Game game, DataInput in) throws IOException {
+        checkVersion(in);
+        int turn = in.readInt();
+        int rounds = in.readInt();
+        boolean gameOver = in.readBoolean();
+        Player[] players = game.getPlayers();
+        if (in.readInt() != players.length) {
+            throw new IOException("Saved state is for a different number of players");
+        }
+        for (Player player : players) {
+            player.restoreState(in.readInt(), in.readInt(), in.readInt(), in.readBoolean(), in.readInt(),
+                    in.readInt(), in.readInt());
+        }
+        game.restoreTurn(turn, rounds, gameOver);
+    }
+
+    /**
+     * Setup followed by state
+     * 
+     * @param game
+     * @param out
+     * @throws IOException
+     */
+    public static void writeGame(Game game, DataOutput out) throws IOException {
+        writeSetup(game, out);
+        writeState(game, out);
+    }
+
+    /**
+     * Reads what writeGame wrote
+     * 
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static Game readGame(DataInput in) throws IOException {
+        Game game = readSetup(in);
+        readState(game, in);
+        return game;
+    }
+
+    private static void checkVersion(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown game format version " + version);
+        }
+    }
+}
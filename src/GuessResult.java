@@ -0,0 +1,97 @@
+
+/**
+ * Immutable description of what one guess did, returned by Game.applyGuess and
+ * handed to every GameListener
+ */
+
+public class GuessResult {
+
+    public enum Outcome {
+        REPEATED, // already guessed, turn is skipped
+        CORRECT, // letter is in the word
+        INCORRECT // letter is not in the word, a life is lost
+    }
+
+    private final Outcome outcome;
+    private final int playerId;
+    private final char guess;
+    private final Word word;
+    private final int scoreDelta;
+    private final int occurrences;
+    private final int livesRemaining;
+    private final boolean wordGuessed; // every letter of the word has been found
+    private final boolean wordLost; // no lives left for the word
+    private final boolean playerFinished; // the player has no words left
+    private final boolean gameOver; // no player has words left
+
+    GuessResult(Outcome outcome, int playerId, char guess, Word word, int scoreDelta, int occurrences,
+            int livesRemaining, boolean wordGuessed, boolean wordLost, boolean playerFinished, boolean gameOver) {
+        this.outcome = outcome;
+        this.playerId = playerId;
+        this.guess = guess;
+        this.word = word;
+        this.scoreDelta = scoreDelta;
+        this.occurrences = occurrences;
+        this.livesRemaining = livesRemaining;
+        this.wordGuessed = wordGuessed;
+        this.wordLost = wordLost;
+        this.playerFinished = playerFinished;
+        this.gameOver = gameOver;
+    }
+
+    @Override
+    public String toString() {
+        return "{Guess: " + guess + " | Player: " + playerId + " | Outcome: " + outcome + " | Score: +" + scoreDelta
+                + "}";
+    }
+
+    // Getters
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public char getGuess() {
+        return guess;
+    }
+
+    public Word getWord() {
+        return word;
+    }
+
+    public int getScoreDelta() {
+        return scoreDelta;
+    }
+
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    public int getLivesRemaining() {
+        return livesRemaining;
+    }
+
+    public boolean isWordGuessed() {
+        return wordGuessed;
+    }
+
+    public boolean isWordLost() {
+        return wordLost;
+    }
+
+    // True if the player moves on from the word, either way
+    public boolean isWordDone() {
+        return wordGuessed || wordLost;
+    }
+
+    public boolean isPlayerFinished() {
+        return playerFinished;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
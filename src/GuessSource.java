@@ -0,0 +1,17 @@
+
+/**
+ * Input side of a Game: supplies the next guess of whichever player's turn it
+ * is. Implemented by the console, network sessions and bots.
+ */
+
+public interface GuessSource {
+
+    /**
+     * Returns player's next guess for word
+     * 
+     * @param player
+     * @param word
+     * @return
+     */
+    char nextGuess(Player player, Word word);
+}
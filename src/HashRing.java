@@ -0,0 +1,123 @@
+/**
+ * Consistent hash ring mapping keys(session ids) onto named nodes(workers).
+ * Every node is placed on the ring at several points, its virtual nodes, and a
+ * key belongs to the first point at or after the key's hash. Adding or
+ * removing a node therefore only moves the keys next to its points, about
+ * 1 / number of nodes of them, and the virtual nodes spread those evenly over
+ * the other nodes.
+ *
+ * Not thread safe, ShardRouter guards it.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class HashRing {
+    // Constants
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final int virtualNodes;
+    private final TreeMap<Long, String> ring = new TreeMap<Long, String>();
+    private final ArrayList<String> nodes = new ArrayList<String>();
+
+    public HashRing() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Need at least one virtual node, was " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Places node on the ring. Throws IllegalArgumentException if it is already
+     * there
+     *
+     * @param node
+     */
+    public void addNode(String node) {
+        if (nodes.contains(node)) {
+            throw new IllegalArgumentException("Node " + node + " is already on the ring");
+        }
+        nodes.add(node);
+        for (int i = 0; i < virtualNodes; i++) {
+            // a clash between two points is rare enough to just let the later node win it
+            ring.put(hash(node + "#" + i), node);
+        }
+    }
+
+    /**
+     * Takes node off the ring, its keys move to the nodes after its points
+     *
+     * @param node
+     */
+    public void removeNode(String node) {
+        if (!nodes.remove(node)) {
+            return;
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.remove(hash(node + "#" + i), node);
+        }
+    }
+
+    /**
+     * Returns the node key belongs to, or null if the ring is empty
+     *
+     * @param key
+     * @return
+     */
+    public String getNode(long key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        // past the last point wraps around to the first
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<String> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * Spreads key over the whole ring, ids handed out in order would otherwise
+     * all land next to each other
+     *
+     * @param key
+     * @return
+     */
+    public static long hash(long key) {
+        // finalizer of MurmurHash3
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * 64 bit FNV-1a of the UTF-8 bytes of s, spread with hash(long)
+     *
+     * @param s
+     * @return
+     */
+    public static long hash(String s) {
+        long retVar = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            retVar ^= b & 0xFF;
+            retVar *= 0x100000001b3L;
+        }
+        return hash(retVar);
+    }
+}
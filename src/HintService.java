@@ -0,0 +1,302 @@
+
+/**
+ * Looks up hints(synonyms) for words without blocking the game. Results are kept
+ * in a bounded cache that forgets the least recently used word first and drops
+ * entries after a time to live. Concurrent lookups of the same word share one
+ * request. If a HintStore is attached, it is checked before the network and
+ * every fetched hint is written to it.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class HintService {
+    // Constants
+    private static final int DEFAULT_CAPACITY = 10000;
+    private static final long DEFAULT_TTL_MILLIS = 60 * 60 * 1000;
+    private static final int MAX_CANDIDATES = 10; // synonyms read per lookup
+    public static final String DEFAULT_STORE_PATH = "data/hints.log";
+
+    private static final HintService DEFAULT = createDefault();
+
+    private final Function<String, CompletableFuture<String>> fetcher;
+    private final int capacity;
+    private final long ttlMillis;
+    private volatile boolean prefetchEnabled; // off unless a player can ask for hints
+    private volatile HintStore store; // null means memory only
+
+    // Access ordered so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, CachedHint> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight;
+
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LatencyHistogram fetchLatency = new LatencyHistogram();
+
+    /**
+     * fetcher performs the actual lookup for a word
+     * 
+     * @param fetcher
+     * @param capacity
+     * @param ttlMillis
+     */
+    public HintService(Function<String, CompletableFuture<String>> fetcher, int capacity, long ttlMillis) {
+        this.fetcher = fetcher;
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.inFlight = new ConcurrentHashMap<String, CompletableFuture<String>>();
+        this.cache = new LinkedHashMap<String, CachedHint>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedHint> eldest) {
+                return size() > HintService.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Helper for DEFAULT. The store is only used if it has been created, usually
+     * by HintWarmup
+     * 
+     * @return
+     */
+    private static HintService createDefault() {
+        HintService service = new HintService(HintService::fetchRankedHint, DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS);
+        Path storePath = Paths.get(DEFAULT_STORE_PATH);
+        if (Files.exists(storePath)) {
+            try {
+                service.setStore(new HintStore(storePath));
+            } catch (IOException e) {
+                // hints still work without the store, just slower
+                e.printStackTrace();
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Fetches several synonyms of word and picks the best hint among them
+     * 
+     * @param word
+     * @return
+     */
+    public static CompletableFuture<String> fetchRankedHint(String word) {
+        return APIInterfacer.getSynonymsAsync(word, MAX_CANDIDATES)
+                .thenApply((List<String> candidates) -> chooseHint(word, candidates));
+    }
+
+    /**
+     * Returns the first single word candidate that does not give the word away,
+     * falling back to the first such phrase. Returns an empty string if every
+     * candidate contains the word or is contained in it
+     * 
+     * @param word
+     * @param candidates
+     * @return
+     */
+    public static String chooseHint(String word, List<String> candidates) {
+        String lowerWord = word.toLowerCase();
+        String phrase = null;
+        for (String candidate : candidates) {
+            String lowerCandidate = candidate.toLowerCase();
+            if (candidate.isEmpty() || lowerCandidate.contains(lowerWord) || lowerWord.contains(lowerCandidate)) {
+                continue;
+            }
+            if (candidate.indexOf(' ') == -1) {
+                return candidate;
+            }
+            if (phrase == null) {
+                phrase = candidate;
+            }
+        }
+        return phrase == null ? "" : phrase;
+    }
+
+    /**
+     * Returns the service used by Word and Player, backed by the WordsAPI
+     * 
+     * @return
+     */
+    public static HintService getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the hint for word, waiting for the lookup if it is not cached yet.
+     * Returns an empty string if something goes wrong
+     * 
+     * @param word
+     * @return
+     */
+    public String getHint(String word) {
+        return getHintAsync(word).join();
+    }
+
+    /**
+     * Returns a future that completes with the hint for word. The future never
+     * fails, an empty string is used instead
+     * 
+     * @param word
+     * @return
+     */
+    public CompletableFuture<String> getHintAsync(String word) {
+        String cached = getCached(word);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        String stored = getStored(word);
+        if (stored != null) {
+            storeHits.increment();
+            putCached(word, stored);
+            return CompletableFuture.completedFuture(stored);
+        }
+        misses.increment();
+
+        CompletableFuture<String> created = new CompletableFuture<String>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(word, created);
+        if (existing != null) {
+            // someone is already looking this word up
+            coalesced.increment();
+            return existing;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<String> fetched;
+        try {
+            fetched = fetcher.apply(word);
+        } catch (RuntimeException e) {
+            fetched = CompletableFuture.failedFuture(e);
+        }
+        fetched.whenComplete((String hint, Throwable error) -> {
+            fetchLatency.record(System.nanoTime() - start);
+            if (error == null && hint != null) {
+                // failures are not cached so the next request tries again
+                putCached(word, hint);
+                putStored(word, hint);
+            }
+            inFlight.remove(word, created);
+            created.complete(error == null && hint != null ? hint : "");
+        });
+        return created;
+    }
+
+    /**
+     * Starts looking up hints for every word so they are ready when asked for.
+     * Does nothing unless prefetching was turned on(see setPrefetchEnabled),
+     * so servers, bots and tools never send requests to the word API
+     * 
+     * @param words
+     */
+    public void prefetch(Word[] words) {
+        if (!prefetchEnabled) {
+            return;
+        }
+        for (Word word : words) {
+            getHintAsync(word.getWordString());
+        }
+    }
+
+    public void setPrefetchEnabled(boolean enabled) {
+        prefetchEnabled = enabled;
+    }
+
+    public void setStore(HintStore store) {
+        this.store = store;
+    }
+
+    public HintStore getStore() {
+        return store;
+    }
+
+    // Statistics getters
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStoreHits() {
+        return storeHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    // Memory and store hits both count, neither needs the network
+    public double getHitRate() {
+        long served = getHits() + getStoreHits();
+        long total = served + getMisses();
+        return total == 0 ? 0 : (double) served / total;
+    }
+
+    public LatencyHistogram getFetchLatency() {
+        return fetchLatency;
+    }
+
+    private synchronized String getCached(String word) {
+        CachedHint cachedHint = cache.get(word);
+        if (cachedHint == null) {
+            return null;
+        }
+        if (cachedHint.expiresAt < System.currentTimeMillis()) {
+            cache.remove(word);
+            return null;
+        }
+        return cachedHint.hint;
+    }
+
+    private synchronized void putCached(String word, String hint) {
+        cache.put(word, new CachedHint(hint, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private String getStored(String word) {
+        HintStore currStore = store;
+        if (currStore == null) {
+            return null;
+        }
+        try {
+            return currStore.get(word);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void putStored(String word, String hint) {
+        HintStore currStore = store;
+        if (currStore == null) {
+            return;
+        }
+        try {
+            currStore.put(word, hint);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Cache entry, immutable
+    private static class CachedHint {
+        private final String hint;
+        private final long expiresAt;
+
+        private CachedHint(String hint, long expiresAt) {
+            this.hint = hint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+
+/**
+ * Persistent word to hint map kept in an append-only log file. Only the file
+ * offset of each hint is held in memory; the hint itself is read back from the
+ * file when asked for. Newer records for a word replace older ones, and stale
+ * records are dropped by compacting the file when it is opened.
+ *
+ * Record layout: unsigned short word length, unsigned short hint length, then
+ * the UTF-8 bytes of the word and of the hint.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+public class HintStore implements Closeable {
+    // Constants
+    private static final int RECORD_HEADER_BYTES = 4;
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+
+    private final Path file;
+    private FileChannel channel;
+    private final HashMap<String, Long> hintOffsets = new HashMap<String, Long>();
+    private final HashMap<String, Integer> hintLengths = new HashMap<String, Integer>();
+
+    /**
+     * Opens or creates the log at file, rewriting it first if it holds stale
+     * records
+     * 
+     * @param file
+     * @throws IOException
+     */
+    public HintStore(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int records = loadIndex();
+        if (records > hintOffsets.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns the stored hint for word, or null if there is none
+     * 
+     * @param word
+     * @return
+     * @throws IOException
+     */
+    public synchronized String get(String word) throws IOException {
+        Long offset = hintOffsets.get(word);
+        if (offset == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(hintLengths.get(word));
+        readFully(buffer, offset);
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    public synchronized boolean contains(String word) {
+        return hintOffsets.containsKey(word);
+    }
+
+    public synchronized int size() {
+        return hintOffsets.size();
+    }
+
+    /**
+     * Appends a record for word. Not forced to disk, a lost hint is simply looked
+     * up again
+     * 
+     * @param word
+     * @param hint
+     * @throws IOException
+     */
+    public synchronized void put(String word, String hint) throws IOException {
+        byte[] wordBytes = word.getBytes(StandardCharsets.UTF_8);
+        byte[] hintBytes = hint.getBytes(StandardCharsets.UTF_8);
+        if (wordBytes.length > MAX_FIELD_BYTES || hintBytes.length > MAX_FIELD_BYTES) {
+            throw new IllegalArgumentException("Word or hint too long to store: " + word);
+        }
+        long recordStart = channel.size();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + wordBytes.length + hintBytes.length);
+        record.putShort((short) wordBytes.length).putShort((short) hintBytes.length).put(wordBytes).put(hintBytes);
+        record.flip();
+        long position = recordStart;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        hintOffsets.put(word, recordStart + RECORD_HEADER_BYTES + wordBytes.length);
+        hintLengths.put(word, hintBytes.length);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    /**
+     * Helper function for the constructor. Reads every record and returns how
+     * many there were. A partly written record at the end(from a crash) is cut off
+     * 
+     * @return
+     * @throws IOException
+     */
+    private int loadIndex() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        int records = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while (position + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int wordLength = header.getShort() & 0xFFFF;
+            int hintLength = header.getShort() & 0xFFFF;
+            if (position + RECORD_HEADER_BYTES + wordLength + hintLength > size) {
+                break;
+            }
+            ByteBuffer wordBuffer = ByteBuffer.allocate(wordLength);
+            readFully(wordBuffer, position + RECORD_HEADER_BYTES);
+            String word = new String(wordBuffer.array(), StandardCharsets.UTF_8);
+            hintOffsets.put(word, position + RECORD_HEADER_BYTES + wordLength);
+            hintLengths.put(word, hintLength);
+            position += RECORD_HEADER_BYTES + wordLength + hintLength;
+            records++;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        return records;
+    }
+
+    /**
+     * Helper function for the constructor. Writes the live records to a new file
+     * and swaps it in
+     * 
+     * @throws IOException
+     */
+    private void compact() throws IOException {
+        HashMap<String, String> live = new HashMap<String, String>();
+        for (String word : hintOffsets.keySet()) {
+            live.put(word, get(word));
+        }
+        channel.close();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        Files.deleteIfExists(temp);
+        channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        hintOffsets.clear();
+        hintLengths.clear();
+        for (Map.Entry<String, String> entry : live.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+        channel.force(false);
+        channel.close();
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                throw new IOException("Unexpected end of " + file);
+            }
+            position += read;
+        }
+    }
+}
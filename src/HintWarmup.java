@@ -0,0 +1,109 @@
+
+/**
+ * Command line tool that looks up the hint for every word in the data files and
+ * saves it to the hint store, so games can serve hints without the network.
+ * Words already in the store are skipped.
+ *
+ * Options:
+ * --store PATH      store file(default data/hints.log)
+ * --url URL         base url of the synonym endpoint
+ * --stub            start a local StubSynonymServer and use it instead. Its hints
+ *                   are made up, so without --store they go to a temporary file
+ *                   deleted on exit, never to data/hints.log
+ * --concurrency N   lookups in flight at once(default 16)
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+public class HintWarmup {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path storePath = null;
+        int concurrency = 16;
+        boolean useStub = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--store":
+                    storePath = Paths.get(args[++i]);
+                    break;
+                case "--url":
+                    APIInterfacer.setBaseUrl(args[++i]);
+                    break;
+                case "--stub":
+                    useStub = true;
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (storePath == null && useStub) {
+            storePath = Files.createTempFile("hints", ".log");
+            storePath.toFile().deleteOnExit();
+        } else if (storePath == null) {
+            storePath = Paths.get(HintService.DEFAULT_STORE_PATH);
+        }
+
+        StubSynonymServer stub = null;
+        if (useStub) {
+            stub = new StubSynonymServer(0, 0);
+            stub.start();
+            APIInterfacer.setBaseUrl(stub.getBaseUrl());
+        }
+
+        try (HintStore store = new HintStore(storePath)) {
+            HintService service = new HintService(HintService::fetchRankedHint, 1, 0);
+            service.setStore(store);
+            long start = System.nanoTime();
+            int requested = warmup(service, store, FileInterfacer.getCorpus(), concurrency);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Looked up %d words in %.1fs, store now holds %d hints%n", requested, seconds,
+                    store.size());
+        } finally {
+            if (stub != null) {
+                stub.stop();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Looks up every corpus word missing from store with at most concurrency
+     * lookups in flight. Returns how many words were looked up
+     * 
+     * @param service
+     * @param store
+     * @param corpus
+     * @param concurrency
+     * @return
+     * @throws InterruptedException
+     */
+    public static int warmup(HintService service, HintStore store, WordCorpus corpus, int concurrency)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(concurrency);
+        int requested = 0;
+        for (int d = 0; d < corpus.getNumDifficulties(); d++) {
+            for (int i = 0; i < corpus.size(d); i++) {
+                String word = corpus.getWord(d, i).getWordString();
+                if (store.contains(word)) {
+                    continue;
+                }
+                permits.acquire();
+                requested++;
+                CompletableFuture<String> lookup = service.getHintAsync(word);
+                lookup.whenComplete((String hint, Throwable error) -> permits.release());
+            }
+        }
+        // waits for the last lookups to finish
+        permits.acquire(concurrency);
+        return requested;
+    }
+}
@@ -0,0 +1,204 @@
+
+/**
+ * Small pull tokenizer for JSON read from a Reader. Text of the current string,
+ * name or number is collected in one reused buffer and only turned into a
+ * String when asked for, so skipping over parts of a document allocates
+ * nothing. Commas and colons are consumed for the caller, and the input is not
+ * validated beyond what is needed to tokenize it.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+
+public class JsonTokenizer {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, LITERAL, END_DOCUMENT
+    }
+
+    // Constants
+    private static final int BUFFER_CHARS = 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private int position;
+    private int limit;
+    private final StringBuilder text = new StringBuilder();
+
+    public JsonTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads and returns the next token. For NAME, STRING, NUMBER and LITERAL the
+     * text is available through getText and textEquals
+     * 
+     * @return
+     * @throws IOException
+     */
+    public Token next() throws IOException {
+        int c = nextSignificantChar();
+        switch (c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                readString();
+                // a string followed by a colon is an object member name
+                int after = nextSignificantChar();
+                if (after == ':') {
+                    return Token.NAME;
+                }
+                if (after != -1) {
+                    position--;
+                }
+                return Token.STRING;
+            default:
+                text.setLength(0);
+                text.append((char) c);
+                while (fill() && isBareChar(buffer[position])) {
+                    text.append(buffer[position++]);
+                }
+                return c == '-' || (c >= '0' && c <= '9') ? Token.NUMBER : Token.LITERAL;
+        }
+    }
+
+    /**
+     * Skips the value that starts with token, including everything nested in it
+     * 
+     * @param token
+     * @throws IOException
+     */
+    public void skipValue(Token token) throws IOException {
+        int depth = 0;
+        while (true) {
+            if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+                depth++;
+            } else if (token == Token.END_OBJECT || token == Token.END_ARRAY) {
+                depth--;
+            } else if (token == Token.END_DOCUMENT) {
+                return;
+            }
+            if (depth <= 0) {
+                return;
+            }
+            token = next();
+        }
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Compares the current text with value without creating a String
+     * 
+     * @param value
+     * @return
+     */
+    public boolean textEquals(String value) {
+        if (text.length() != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reads the rest of a string after its opening quote into text
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (!fill()) {
+                throw new IOException("Unterminated string");
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                return;
+            }
+            if (c != '\\') {
+                text.append(c);
+                continue;
+            }
+            if (!fill()) {
+                throw new IOException("Unterminated escape");
+            }
+            char escaped = buffer[position++];
+            switch (escaped) {
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        if (!fill()) {
+                            throw new IOException("Unterminated unicode escape");
+                        }
+                        int digit = Character.digit(buffer[position++], 16);
+                        if (digit == -1) {
+                            throw new IOException("Invalid unicode escape");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    text.append((char) code);
+                    break;
+                default:
+                    // covers \" \\ and \/
+                    text.append(escaped);
+            }
+        }
+    }
+
+    // Returns the next char that is not whitespace, a comma or a colon after a
+    // value, or -1 at the end of input
+    private int nextSignificantChar() throws IOException {
+        while (fill()) {
+            char c = buffer[position++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t' && c != ',') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBareChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '.' || c == '-'
+                || c == '+';
+    }
+
+    // Makes sure at least one char is buffered, returns false at the end of input
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,193 @@
+
+/**
+ * Global leaderboard shared by every session in the JVM, keyed by player id.
+ * Score updates lock only one of a fixed set of stripes(chosen by player id), so
+ * sessions rarely wait on each other, and reads never lock at all:
+ * - top K walks a concurrent skip list ordered by score
+ * - rank of a player counts higher scores in a Fenwick tree of atomic counters
+ * Reads may briefly miss an update that is still in progress.
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Leaderboard {
+    // Constants
+    private static final int NUM_STRIPES = 64; // power of two
+    private static final int DEFAULT_SCORE_CAPACITY = 1 << 20;
+
+    private final Object[] stripes = new Object[NUM_STRIPES];
+    private final ConcurrentHashMap<Integer, Standing> standingsById = new ConcurrentHashMap<Integer, Standing>();
+    private final ConcurrentSkipListSet<Standing> ranking = new ConcurrentSkipListSet<Standing>();
+
+    // Fenwick tree over scores: counts[i] covers a range of scores ending at i - 1.
+    // Scores at or above scoreCapacity - 1 share the last slot
+    private final int scoreCapacity;
+    private final AtomicLongArray counts;
+
+    public Leaderboard() {
+        this(DEFAULT_SCORE_CAPACITY);
+    }
+
+    /**
+     * Ranks are computed in logarithmic time for scores below scoreCapacity;
+     * higher scores are ranked by walking the players above them
+     * 
+     * @param scoreCapacity
+     */
+    public Leaderboard(int scoreCapacity) {
+        this.scoreCapacity = scoreCapacity;
+        this.counts = new AtomicLongArray(scoreCapacity + 1);
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Adds delta to the player's score, adding the player with a score of 0 first
+     * if needed
+     * 
+     * @param playerId
+     * @param delta
+     */
+    public void addScore(int playerId, long delta) {
+        synchronized (stripes[playerId & (NUM_STRIPES - 1)]) {
+            Standing old = standingsById.get(playerId);
+            long oldScore = old == null ? 0 : old.score;
+            Standing updated = new Standing(playerId, Math.max(0, oldScore + delta));
+            if (old != null && updated.score == oldScore) {
+                return; // equal standings would replace each other in the skip list
+            }
+
+            // the new standing goes in before the old one leaves, so top K readers
+            // never see the player missing
+            ranking.add(updated);
+            standingsById.put(playerId, updated);
+            addCount(slotOf(updated.score), 1);
+            if (old != null) {
+                ranking.remove(old);
+                addCount(slotOf(old.score), -1);
+            }
+        }
+    }
+
+    /**
+     * Returns the player's score, 0 if they have not scored yet
+     * 
+     * @param playerId
+     * @return
+     */
+    public long getScore(int playerId) {
+        Standing standing = standingsById.get(playerId);
+        return standing == null ? 0 : standing.score;
+    }
+
+    /**
+     * Returns 1 + the number of players with a strictly higher score, so tied
+     * players share a rank. Returns -1 for unknown players
+     * 
+     * @param playerId
+     * @return
+     */
+    public long getRank(int playerId) {
+        Standing standing = standingsById.get(playerId);
+        if (standing == null) {
+            return -1;
+        }
+        int slot = slotOf(standing.score);
+        long above = countAtOrBelow(scoreCapacity - 1) - countAtOrBelow(slot);
+        if (slot == scoreCapacity - 1) {
+            // scores in the shared last slot are told apart through the skip list
+            for (Standing other : ranking) {
+                if (other.score <= standing.score) {
+                    break;
+                }
+                above++;
+            }
+        }
+        return 1 + above;
+    }
+
+    /**
+     * Returns the k best standings, highest score first. Ties are ordered by
+     * player id
+     * 
+     * @param k
+     * @return
+     */
+    public List<Standing> getTop(int k) {
+        ArrayList<Standing> retVar = new ArrayList<Standing>(k);
+        Iterator<Standing> iterator = ranking.iterator();
+        while (retVar.size() < k && iterator.hasNext()) {
+            Standing standing = iterator.next();
+            // a player may briefly appear twice while their score is updated
+            if (standingsById.get(standing.playerId) == standing) {
+                retVar.add(standing);
+            }
+        }
+        return retVar;
+    }
+
+    public int size() {
+        return standingsById.size();
+    }
+
+    private int slotOf(long score) {
+        return (int) Math.min(score, scoreCapacity - 1);
+    }
+
+    // Fenwick update, indices are shifted by one
+    private void addCount(int slot, long delta) {
+        for (int i = slot + 1; i <= scoreCapacity; i += i & -i) {
+            counts.addAndGet(i, delta);
+        }
+    }
+
+    // Fenwick prefix sum: players whose slot is at most slot
+    private long countAtOrBelow(int slot) {
+        long retVar = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            retVar += counts.get(i);
+        }
+        return retVar;
+    }
+
+    /**
+     * A player's score at one point in time, immutable. Ordered by score, highest
+     * first, then by player id
+     */
+    public static class Standing implements Comparable<Standing> {
+        private final int playerId;
+        private final long score;
+
+        private Standing(int playerId, long score) {
+            this.playerId = playerId;
+            this.score = score;
+        }
+
+        public int getPlayerId() {
+            return playerId;
+        }
+
+        public long getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "{Player Id: " + playerId + ", Score: " + score + "}";
+        }
+
+        @Override
+        public int compareTo(Standing o) {
+            if (this.score == o.score) {
+                return Integer.compare(this.playerId, o.playerId);
+            }
+            return Long.compare(o.score, this.score);
+        }
+    }
+}
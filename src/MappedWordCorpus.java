@@ -0,0 +1,121 @@
+
+/**
+ * WordCorpus that reads the binary file written by CorpusCompiler through a
+ * memory mapping. Nothing is parsed up front; a Word is only created when it is
+ * asked for, so the heap does not grow with the size of the corpus.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedWordCorpus implements WordCorpus {
+    private final ByteBuffer buffer;
+    private final int numBuckets;
+
+    /**
+     * Maps the whole file and checks its header. The mapping stays valid after the
+     * channel is closed
+     *
+     * @param file
+     * @throws IOException
+     */
+    public MappedWordCorpus(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than a single 2GB mapping");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < CorpusCompiler.HEADER_BYTES || buffer.getInt(0) != CorpusCompiler.MAGIC) {
+            throw new IOException(file + " is not a compiled word corpus");
+        }
+        if (buffer.getInt(4) != CorpusCompiler.VERSION) {
+            throw new IOException(file + " has unsupported version " + buffer.getInt(4));
+        }
+        numBuckets = buffer.getInt(8);
+    }
+
+    /**
+     * Returns the source list(see CorpusCompiler.describeSources) of the
+     * compiled corpus in file, or null if file is not a corpus this version can
+     * read. Only the header and the list are read
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static byte[] readSources(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(CorpusCompiler.HEADER_BYTES);
+            readFully(channel, header, 0);
+            if (header.position() < CorpusCompiler.HEADER_BYTES || header.getInt(0) != CorpusCompiler.MAGIC
+                    || header.getInt(4) != CorpusCompiler.VERSION) {
+                return null;
+            }
+            int position = header.getInt(12);
+            if (position < CorpusCompiler.HEADER_BYTES || position > channel.size()) {
+                return null;
+            }
+            ByteBuffer sources = ByteBuffer.allocate((int) (channel.size() - position));
+            readFully(channel, sources, position);
+            return sources.array();
+        }
+    }
+
+    @Override
+    public int getNumDifficulties() {
+        return numBuckets;
+    }
+
+    @Override
+    public int size(int difficulty) {
+        return buffer.getInt(bucketEntry(difficulty));
+    }
+
+    @Override
+    public Word getWord(int difficulty, int index) {
+        int entry = bucketEntry(difficulty);
+        if (index < 0 || index >= buffer.getInt(entry)) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for difficulty " + difficulty);
+        }
+        int wordOffset = buffer.getInt(buffer.getInt(entry + 4) + index * Integer.BYTES);
+        double frequency = buffer.getDouble(buffer.getInt(entry + 8) + index * Double.BYTES);
+
+        // Absolute reads only, so several games can read the same mapping at once
+        int length = ((buffer.get(wordOffset) & 0xFF) << 8) | (buffer.get(wordOffset + 1) & 0xFF);
+        byte[] bytes = new byte[length];
+        buffer.get(wordOffset + 2, bytes);
+        return new Word(new String(bytes, StandardCharsets.UTF_8), frequency);
+    }
+
+    @Override
+    public double getFrequency(int difficulty, int index) {
+        int entry = bucketEntry(difficulty);
+        if (index < 0 || index >= buffer.getInt(entry)) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for difficulty " + difficulty);
+        }
+        return buffer.getDouble(buffer.getInt(entry + 8) + index * Double.BYTES);
+    }
+
+    // Reads from position until target is full or the channel ends
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + target.position());
+            if (read == -1) {
+                return;
+            }
+        }
+    }
+
+    // Position of the bucket table entry for difficulty
+    private int bucketEntry(int difficulty) {
+        if (difficulty < 0 || difficulty >= numBuckets) {
+            throw new IndexOutOfBoundsException("No difficulty " + difficulty);
+        }
+        return CorpusCompiler.HEADER_BYTES + difficulty * CorpusCompiler.BUCKET_ENTRY_BYTES;
+    }
+}
@@ -0,0 +1,286 @@
+
+/**
+ * Non blocking game server for large numbers of connections. One selector
+ * thread serves every connection, and each connection plays its own single
+ * player game. Frames are parsed straight out of ByteBuffers, and replies are
+ * gathering writes of a reused header buffer and the player's display buffer,
+ * so no Strings are created per message.
+ *
+ * Client to server frames:
+ * NEW:   [1][difficulty, from 0][words per player][lives]
+ * GUESS: [2][letter as an ASCII byte]
+ *
+ * Server to client frames, a 10 byte header followed by the display bytes:
+ * [type][outcome][lives remaining][flags][score, int][display length, short]
+ * type is STARTED, RESULT or ERROR, outcome is the GuessResult.Outcome ordinal
+ * and flags are the FLAG_ bits. After a word is done the display already shows
+ * the next word. The connection is closed after the game is over.
+ */
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+public class NioGameServer {
+    // Constants
+    public static final int DEFAULT_PORT = 7778;
+    public static final byte OP_NEW = 1;
+    public static final byte OP_GUESS = 2;
+    public static final byte TYPE_STARTED = 1;
+    public static final byte TYPE_RESULT = 2;
+    public static final byte TYPE_ERROR = 3;
+    public static final byte FLAG_WORD_GUESSED = 1;
+    public static final byte FLAG_WORD_LOST = 2;
+    public static final byte FLAG_GAME_OVER = 4;
+    public static final int HEADER_BYTES = 10;
+    private static final int READ_BUFFER_BYTES = 64;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final LatencyHistogram guessLatency = new LatencyHistogram();
+    private volatile boolean running = true;
+
+    /**
+     * Binds to port on localhost(0 picks a free port)
+     * 
+     * @param port
+     * @throws IOException
+     */
+    public NioGameServer(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    public LatencyHistogram getGuessLatency() {
+        return guessLatency;
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        FileInterfacer.getCorpus();
+        GameMetrics.register();
+
+        NioGameServer server = new NioGameServer(port);
+        System.out.println("Listening on port " + server.getPort());
+        server.run();
+    }
+
+    /**
+     * Selector loop, runs on the calling thread until stop is called
+     * 
+     * @throws IOException
+     */
+    public void run() throws IOException {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection connection = (Connection) key.attachment();
+                            if (key.isWritable()) {
+                                connection.onWritable(key);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        // one broken connection must not stop the others
+                        close(key);
+                    }
+                }
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            selector.close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // already closing, nothing else to do
+        }
+    }
+
+    /**
+     * State of one connection: its game, its player and its reused buffers
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        private ByteBuffer display = ByteBuffer.allocate(0); // wraps the player's display buffer
+        private final ByteBuffer[] outgoing = new ByteBuffer[2];
+        private boolean closeAfterWrite;
+
+        private Game game;
+        private Player player;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            header.flip(); // nothing to write yet
+            outgoing[0] = header;
+            outgoing[1] = display;
+        }
+
+        /**
+         * Reads what is available and handles every complete frame
+         */
+        private void read(SelectionKey key) throws IOException {
+            if (channel.read(in) == -1) {
+                close(key);
+                return;
+            }
+            processFrames(key);
+        }
+
+        /**
+         * Called when a reply that did not fit in the socket can be written. Frames
+         * that arrived meanwhile are handled once it is out
+         */
+        private void onWritable(SelectionKey key) throws IOException {
+            writePending(key);
+            if (key.isValid() && !hasPendingWrite()) {
+                processFrames(key);
+            }
+        }
+
+        /**
+         * Handles complete frames in the read buffer one at a time. Stops while a
+         * reply is still being written, so replies never overwrite each other
+         */
+        private void processFrames(SelectionKey key) throws IOException {
+            in.flip();
+            while (in.hasRemaining() && !hasPendingWrite() && key.isValid()) {
+                byte op = in.get(in.position());
+                int frameLength = op == OP_NEW ? 4 : op == OP_GUESS ? 2 : 1;
+                if (in.remaining() < frameLength) {
+                    break; // rest of the frame has not arrived yet
+                }
+                in.get(); // op
+                if (op == OP_NEW) {
+                    handleNew(in.get(), in.get(), in.get());
+                } else if (op == OP_GUESS) {
+                    handleGuess((char) (in.get() & 0xFF));
+                } else {
+                    writeError();
+                    closeAfterWrite = true;
+                }
+                writePending(key);
+            }
+            in.compact();
+        }
+
+        private void handleNew(int difficulty, int numberOfWords, int lives) {
+            if (game != null || numberOfWords <= 0 || lives <= 0
+                    || difficulty < 0 || difficulty >= FileInterfacer.getCorpus().getNumDifficulties()) {
+                writeError();
+                return;
+            }
+            player = new Player("player", 0);
+            try {
+                game = new Game(difficulty, numberOfWords, new Player[] { player }, lives);
+            } catch (IllegalArgumentException e) {
+                game = null;
+                writeError();
+                return;
+            }
+            writeFrame(TYPE_STARTED, 0, lives, 0);
+        }
+
+        private void handleGuess(char guess) {
+            if (game == null || game.isGameOver()) {
+                writeError();
+                return;
+            }
+            long start = System.nanoTime();
+            GuessResult result = game.applyGuess(player.getPlayerId(), guess);
+            int flags = (result.isWordGuessed() ? FLAG_WORD_GUESSED : 0) | (result.isWordLost() ? FLAG_WORD_LOST : 0)
+                    | (result.isGameOver() ? FLAG_GAME_OVER : 0);
+            writeFrame(TYPE_RESULT, result.getOutcome().ordinal(), result.getLivesRemaining(), flags);
+            closeAfterWrite = result.isGameOver();
+            guessLatency.record(System.nanoTime() - start);
+        }
+
+        private void writeError() {
+            writeFrame(TYPE_ERROR, 0, 0, 0);
+        }
+
+        /**
+         * Fills the header and points the display buffer at the player's display
+         * bytes. Nothing is copied
+         */
+        private void writeFrame(byte type, int outcome, int lives, int flags) {
+            int displayLength = player == null || type == TYPE_ERROR ? 0 : player.getDisplayLength();
+            header.clear();
+            header.put(type).put((byte) outcome).put((byte) Math.max(0, Math.min(lives, 255))).put((byte) flags)
+                    .putInt(player == null ? 0 : player.getScore()).putShort((short) displayLength);
+            header.flip();
+
+            if (displayLength > 0 && display.array() != player.getDisplayBuffer()) {
+                // the player grew its buffer for a longer word
+                display = ByteBuffer.wrap(player.getDisplayBuffer());
+                outgoing[1] = display;
+            }
+            display.clear().limit(displayLength);
+        }
+
+        /**
+         * Writes as much of the pending reply as the socket takes, waiting for
+         * OP_WRITE instead of reading if it does not take all of it
+         */
+        private void writePending(SelectionKey key) throws IOException {
+            channel.write(outgoing);
+            if (hasPendingWrite()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (closeAfterWrite) {
+                close(key);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private boolean hasPendingWrite() {
+            return header.hasRemaining() || display.hasRemaining();
+        }
+    }
+}
@@ -0,0 +1,343 @@
+
+/**
+ * Columnar copy of a set of words for filtering candidates against a revealed
+ * pattern without touching Word objects. Words are bucketed by length like
+ * CorpusIndex(same order, so bit i of a result means the same word in both),
+ * and each bucket keeps one byte lane per position: lane p holds the char at
+ * position p of every word of that length.
+ *
+ * Lanes are packed eight words to a long, so the SWAR kernel compares eight
+ * words per operation with plain long arithmetic. The vector kernel compares a
+ * whole vector of those longs at once with jdk.incubator.vector. It is built
+ * from the vector folder and loaded by name, and needs --add-modules
+ * jdk.incubator.vector when run, so without it filtering falls back to SWAR.
+ * The scalar kernel reads the same lanes one byte at a time. All of them give
+ * the same result as CorpusIndex.filter, except that chars outside ASCII all
+ * share one lane value. Immutable once built.
+ */
+
+import java.util.ArrayList;
+
+public class PackedWordStore {
+    // Constants
+    private static final long ONES = 0x0101010101010101L; // 0x01 in every byte
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long BELOW_A = (0x80 - 'a') * ONES; // adding this sets the high bit of bytes >= 'a'
+    private static final long ABOVE_Z = (0x80 - 'z' - 1) * ONES; // adding this sets the high bit of bytes > 'z'
+    private static final byte NOT_ASCII = 0x7F; // stands in for chars that do not fit a lane
+
+    private static final LaneKernel VECTOR_KERNEL = loadVectorKernel(); // null if it cannot run
+    // Kernel used by filter, another one can be forced with e.g. -Dhangman.filter.kernel=scalar
+    private static final Kernel DEFAULT_KERNEL = Kernel.valueOf(System
+            .getProperty("hangman.filter.kernel", VECTOR_KERNEL != null ? "vector" : "swar").toUpperCase());
+
+    public enum Kernel {
+        VECTOR, // a vector of longs at a time, SWAR if it cannot run
+        SWAR, // eight lanes per long
+        SCALAR // one byte at a time
+    }
+
+    /**
+     * Filter over whole vectors of blocks, implemented by VectorLaneKernel in
+     * the vector folder
+     */
+    interface LaneKernel {
+        /**
+         * Sets the candidates of the blocks from 0 to the returned block, which is
+         * where the vectors ran out and the caller goes on
+         */
+        int filter(long[][] lanes, int blocks, Query query, boolean checkLetters, long[] candidates);
+    }
+
+    /**
+     * A pattern and guessed letters as the lane kernels use them
+     */
+    static class Query {
+        final int[] order; // positions, revealed ones first since they rule out the most words
+        final byte[] wanted; // lane value of each revealed position, in order
+        final int revealed;
+        final byte[] guessed; // lane value of each guessed letter
+
+        Query(char[] pattern, int guessedMask) {
+            int length = pattern.length;
+            order = new int[length];
+            wanted = new byte[length];
+            int numRevealed = 0;
+            int hidden = length;
+            for (int p = 0; p < length; p++) {
+                if (pattern[p] == CorpusIndex.HIDDEN) {
+                    order[--hidden] = p;
+                } else {
+                    wanted[numRevealed] = toLane(pattern[p]);
+                    order[numRevealed++] = p;
+                }
+            }
+            revealed = numRevealed;
+            int letters = guessedMask & ((1 << Word.NUM_LETTERS) - 1);
+            guessed = new byte[Integer.bitCount(letters)];
+            for (int g = 0; letters != 0; letters &= letters - 1) {
+                guessed[g++] = (byte) ('a' + Integer.numberOfTrailingZeros(letters));
+            }
+        }
+    }
+
+    private final Bucket[] buckets = new Bucket[Word.MAX_LENGTH + 1]; // index is the word length
+
+    /**
+     * Words of one length
+     */
+    private static class Bucket {
+        final Word[] words;
+        final long[][] lanes; // [position][block], word 8 * block + j is byte j of the block
+        final boolean hasOthers; // true if some word has a char that is not a letter
+
+        Bucket(Word[] words, int length) {
+            this.words = words;
+            int blocks = (words.length + 7) >>> 3;
+            lanes = new long[length][blocks];
+            boolean others = false;
+            for (int i = 0; i < words.length; i++) {
+                String word = words[i].getWordString();
+                for (int p = 0; p < length; p++) {
+                    char c = word.charAt(p);
+                    others |= Word.letterBit(c) == 0;
+                    lanes[p][i >>> 3] |= (toLane(c) & 0xFFL) << ((i & 7) << 3);
+                }
+            }
+            hasOthers = others;
+        }
+    }
+
+    /**
+     * Packs every word of every difficulty of corpus, in the same order as
+     * CorpusIndex(WordCorpus)
+     * 
+     * @param corpus
+     */
+    public PackedWordStore(WordCorpus corpus) {
+        this(CorpusIndex.allWords(corpus));
+    }
+
+    /**
+     * Packs words, which must not contain duplicates
+     * 
+     * @param words
+     */
+    public PackedWordStore(Word[] words) {
+        ArrayList<ArrayList<Word>> byLength = new ArrayList<ArrayList<Word>>();
+        for (int length = 0; length <= Word.MAX_LENGTH; length++) {
+            byLength.add(new ArrayList<Word>());
+        }
+        for (Word word : words) {
+            byLength.get(word.getWordLength(true)).add(word);
+        }
+        for (int length = 1; length <= Word.MAX_LENGTH; length++) {
+            ArrayList<Word> bucketWords = byLength.get(length);
+            if (!bucketWords.isEmpty()) {
+                buckets[length] = new Bucket(bucketWords.toArray(new Word[0]), length);
+            }
+        }
+    }
+
+    // Getters
+    public static Kernel getDefaultKernel() {
+        return DEFAULT_KERNEL;
+    }
+
+    /**
+     * Returns true if the vector kernel was built and jdk.incubator.vector is
+     * there to run it
+     * 
+     * @return
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    public int size(int length) {
+        Bucket bucket = getBucket(length);
+        return bucket == null ? 0 : bucket.words.length;
+    }
+
+    public Word getWord(int length, int index) {
+        return buckets[length].words[index];
+    }
+
+    /**
+     * Same as CorpusIndex.filter, using the default kernel
+     * 
+     * @param pattern
+     * @param guessedMask
+     * @return
+     */
+    public long[] filter(char[] pattern, int guessedMask) {
+        return filter(pattern, guessedMask, DEFAULT_KERNEL);
+    }
+
+    /**
+     * Returns a new bitset over the words of length pattern.length whose revealed
+     * chars match pattern and whose hidden positions hold letters that were not
+     * guessed. VECTOR is carried out by SWAR if it cannot run
+     * 
+     * @param pattern
+     * @param guessedMask
+     * @param kernel
+     * @return
+     */
+    public long[] filter(char[] pattern, int guessedMask, Kernel kernel) {
+        Bucket bucket = getBucket(pattern.length);
+        if (bucket == null) {
+            return new long[0];
+        }
+        long[] candidates = new long[(bucket.words.length + 63) >>> 6];
+        if (kernel == Kernel.SCALAR) {
+            filterScalar(bucket, pattern, guessedMask, candidates);
+            return candidates;
+        }
+        Query query = new Query(pattern, guessedMask);
+        int blocks = (bucket.words.length + 7) >>> 3;
+        int block = 0;
+        if (kernel == Kernel.VECTOR && VECTOR_KERNEL != null) {
+            block = VECTOR_KERNEL.filter(bucket.lanes, blocks, query, bucket.hasOthers, candidates);
+        }
+        // the blocks left over after the last whole vector
+        filterSwar(bucket, query, block, candidates);
+        // padding bytes past the last word are 0 and can match a pattern with no revealed letters
+        int numWords = bucket.words.length;
+        if ((numWords & 63) != 0) {
+            candidates[candidates.length - 1] &= (1L << numWords) - 1;
+        }
+        return candidates;
+    }
+
+    /**
+     * Helper function for filter. Every step works on a block of eight words:
+     * bytes that fail a check get their high bit cleared in the block's match
+     * word, and blocks with nothing left are skipped early. Starts at
+     * firstBlock
+     * 
+     * @param bucket
+     * @param query
+     * @param firstBlock
+     * @param candidates
+     */
+    private static void filterSwar(Bucket bucket, Query query, int firstBlock, long[] candidates) {
+        int[] order = query.order;
+        int length = order.length;
+        int revealed = query.revealed;
+        long[] wanted = new long[revealed];
+        for (int r = 0; r < revealed; r++) {
+            wanted[r] = (query.wanted[r] & 0xFFL) * ONES;
+        }
+        long[] guessed = new long[query.guessed.length];
+        for (int g = 0; g < guessed.length; g++) {
+            guessed[g] = query.guessed[g] * ONES;
+        }
+
+        long[][] lanes = bucket.lanes;
+        int blocks = (bucket.words.length + 7) >>> 3;
+        for (int block = firstBlock; block < blocks; block++) {
+            long match = HIGH_BITS;
+            for (int r = 0; r < revealed && match != 0; r++) {
+                match &= equalBytes(lanes[order[r]][block], wanted[r]);
+            }
+            for (int h = revealed; h < length && match != 0; h++) {
+                long lane = lanes[order[h]][block];
+                if (bucket.hasOthers) {
+                    match &= letterBytes(lane);
+                }
+                for (int i = 0; i < guessed.length; i++) {
+                    match &= ~equalBytes(lane, guessed[i]);
+                }
+            }
+            // the high bit of byte j becomes bit j
+            long bits = ((match >>> 7) * 0x0102040810204080L) >>> 56;
+            candidates[block >>> 3] |= bits << ((block & 7) << 3);
+        }
+    }
+
+    /**
+     * Helper function for filter. Checks one word at a time, reading its chars
+     * from the lanes
+     * 
+     * @param bucket
+     * @param pattern
+     * @param guessedMask
+     * @param candidates
+     */
+    private static void filterScalar(Bucket bucket, char[] pattern, int guessedMask, long[] candidates) {
+        int length = pattern.length;
+        byte[] wanted = new byte[length];
+        for (int p = 0; p < length; p++) {
+            wanted[p] = pattern[p] == CorpusIndex.HIDDEN ? 0 : toLane(pattern[p]);
+        }
+        long[][] lanes = bucket.lanes;
+        for (int i = 0; i < bucket.words.length; i++) {
+            int block = i >>> 3;
+            int shift = (i & 7) << 3;
+            boolean fits = true;
+            for (int p = 0; p < length && fits; p++) {
+                char c = (char) ((lanes[p][block] >>> shift) & 0xFF);
+                if (wanted[p] != 0) {
+                    fits = c == wanted[p];
+                } else {
+                    int bit = Word.letterBit(c);
+                    fits = bit != 0 && (guessedMask & bit) == 0;
+                }
+            }
+            if (fits) {
+                candidates[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Returns a word with the high bit of each byte set where the bytes of x and
+     * y are equal
+     * 
+     * @param x
+     * @param y
+     * @return
+     */
+    private static long equalBytes(long x, long y) {
+        long diff = x ^ y;
+        // high bit set for every byte that is not zero, without carries between bytes
+        long nonZero = ((diff & LOW_BITS) + LOW_BITS) | diff;
+        return ~nonZero & HIGH_BITS;
+    }
+
+    /**
+     * Returns a word with the high bit of each byte of x set where the byte is
+     * between 'a' and 'z'. Lane bytes are always below 0x80, so the additions
+     * cannot carry into the next byte
+     * 
+     * @param x
+     * @return
+     */
+    private static long letterBytes(long x) {
+        return (x + BELOW_A) & ~(x + ABOVE_Z) & HIGH_BITS;
+    }
+
+    /**
+     * Helper function for the static initializer. Returns null if the vector
+     * kernel was not built or jdk.incubator.vector was not added
+     * 
+     * @return
+     */
+    private static LaneKernel loadVectorKernel() {
+        try {
+            return (LaneKernel) Class.forName("VectorLaneKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static byte toLane(char c) {
+        return c < 0x80 ? (byte) c : NOT_ASCII;
+    }
+
+    private Bucket getBucket(int length) {
+        return length < buckets.length ? buckets[length] : null;
+    }
+}
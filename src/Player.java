@@ -1,18 +1,30 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.HashSet;
 
 /**
  * Container for each Player. Each player keeps track of their own words,
  * guesses, and score in each game.
  */
 public class Player implements Comparable<Player> {
+    // Constants
+    private static final byte[] GUESSED_PREFIX = "P.S. You have guessed the following characters: "
+            .getBytes(StandardCharsets.US_ASCII);
+
     // Required properties for initialization
     private String displayString;
     private int id;
 
     // Properties needed for each new word
-    private HashSet<Character> currentGuessedChars; // all characters guessed during this word
+    private int guessedMask; // all letters guessed during this word, see Word.letterBit
     private int lettersRemaining; // how many more letters left to guess
+    // Reused render buffers, ASCII bytes that can be written out as they are
+    private byte[] displayBuffer = new byte[0]; // "_ o _ d" style display string
+    private int displayLength;
+    private final byte[] guessedCharsBuffer = Arrays.copyOf(GUESSED_PREFIX,
+            GUESSED_PREFIX.length + 3 * Word.NUM_LETTERS);
+    private int guessedCharsLength;
     private int incorrectGuesses;
 
     // Properties needed for each new game
@@ -21,6 +33,7 @@ public class Player implements Comparable<Player> {
     private int wordsGuessedCorrectly;
     private int wordsGuessedIncorrectly;
     private boolean stillPlaying; // false when all words have been attempted
+    private Leaderboard leaderboard; // optional, also receives every score change
 
     /**
      * Constructor requires a player name(display string) and a unique id
@@ -31,7 +44,6 @@ public class Player implements Comparable<Player> {
     public Player(String displayString, int id) {
         this.displayString = displayString;
         this.id = id;
-        currentGuessedChars = new HashSet<Character>();
     }
 
     @Override
@@ -65,8 +77,56 @@ public class Player implements Comparable<Player> {
         return id;
     }
 
-    public HashSet<Character> getCurrentGuessedChars() {
-        return currentGuessedChars;
+    public int getGuessedMask() {
+        return guessedMask;
+    }
+
+    /**
+     * Returns the buffer holding the current word's display string as ASCII
+     * bytes. Only the first getDisplayLength() bytes are valid. The buffer is
+     * reused and changes with every guess, do not modify it
+     * 
+     * @return
+     */
+    public byte[] getDisplayBuffer() {
+        return displayBuffer;
+    }
+
+    public int getDisplayLength() {
+        return displayLength;
+    }
+
+    /**
+     * Same bytes as getCurrentGuessedCharsString, reused like getDisplayBuffer
+     * 
+     * @return
+     */
+    public byte[] getGuessedCharsBuffer() {
+        return guessedCharsBuffer;
+    }
+
+    public int getGuessedCharsLength() {
+        return guessedCharsLength;
+    }
+
+    /**
+     * Writes the current display string without creating a String
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeDisplay(OutputStream out) throws IOException {
+        out.write(displayBuffer, 0, displayLength);
+    }
+
+    /**
+     * Writes the guessed characters line without creating a String
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeGuessedChars(OutputStream out) throws IOException {
+        out.write(guessedCharsBuffer, 0, guessedCharsLength);
     }
 
     /**
@@ -78,13 +138,12 @@ public class Player implements Comparable<Player> {
         StringBuilder retVar = new StringBuilder();
         retVar.append("P.S. You have guessed the following characters: ");
 
-        // need to convert to array because hashsets are inherently unordered
-        Character[] sortedChars = new Character[currentGuessedChars.size()];
-        currentGuessedChars.toArray(sortedChars);
-        Arrays.sort(sortedChars);
-        for (char c : sortedChars) {
-            retVar.append(c);
+        // bits are visited from 'a' to 'z', so the letters come out sorted
+        int remaining = guessedMask;
+        while (remaining != 0) {
+            retVar.append((char) ('a' + Integer.numberOfTrailingZeros(remaining)));
             retVar.append(", ");
+            remaining &= remaining - 1;
         }
         // Remove trailing comma and space
         retVar.deleteCharAt(retVar.length() - 1);
@@ -113,6 +172,15 @@ public class Player implements Comparable<Player> {
         return wordsGuessedCorrectly + wordsGuessedIncorrectly;
     }
 
+    /**
+     * Returns every word of this game in the order they are played
+     * 
+     * @return
+     */
+    public Word[] getWords() {
+        return words.clone();
+    }
+
     public Word getCurrentWord() {
         return words[getTotalWordsGuessed()];
     }
@@ -128,9 +196,12 @@ public class Player implements Comparable<Player> {
     // Setters
     // Set up functions for new word and new game, intializes/resets relevant fields
     public void setupNewWord() {
-        lettersRemaining = getCurrentWord().getWordLength(false);
-        currentGuessedChars = new HashSet<Character>();
+        Word currentWord = getCurrentWord();
+        lettersRemaining = currentWord.getWordLength(false);
+        guessedMask = 0;
         incorrectGuesses = 0;
+        resetDisplay(currentWord);
+        renderGuessedChars();
     }
 
     public void setupNewGame(Word[] newWords) {
@@ -140,18 +211,40 @@ public class Player implements Comparable<Player> {
         words = newWords;
         stillPlaying = true;
         setupNewWord();
+        // hints are looked up in the background so asking for one does not wait
+        HintService.getDefault().prefetch(newWords);
     }
 
+    /**
+     * Records a guess, returns false if it was already guessed. Only letters are
+     * remembered, any other char can never be in a word's letters and is always
+     * accepted
+     * 
+     * @param c
+     * @return
+     */
     public boolean addChar(char c) {
-        if (currentGuessedChars.contains(c)) {
+        int bit = Word.letterBit(c);
+        if ((guessedMask & bit) != 0) {
             return false;
         }
-        currentGuessedChars.add(c);
+        guessedMask |= bit;
+        if (bit != 0) {
+            revealChar(c);
+            renderGuessedChars();
+        }
         return true;
     }
 
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
     public void incrementScore(int delta) {
         score += delta;
+        if (leaderboard != null) {
+            leaderboard.addScore(id, delta);
+        }
     }
 
     public void decrementLettersRemaining(int delta) {
@@ -174,4 +267,87 @@ public class Player implements Comparable<Player> {
         stillPlaying = false;
     }
 
+    /**
+     * Puts the player back into a saved state(see GameStateCodec). setupNewGame
+     * must have been called with the same words
+     * 
+     * @param score
+     * @param wordsGuessedCorrectly
+     * @param wordsGuessedIncorrectly
+     * @param stillPlaying
+     * @param guessedMask
+     * @param incorrectGuesses
+     * @param lettersRemaining
+     */
+    void restoreState(int score, int wordsGuessedCorrectly, int wordsGuessedIncorrectly, boolean stillPlaying,
+            int guessedMask, int incorrectGuesses, int lettersRemaining) {
+        this.score = score;
+        this.wordsGuessedCorrectly = wordsGuessedCorrectly;
+        this.wordsGuessedIncorrectly = wordsGuessedIncorrectly;
+        this.stillPlaying = stillPlaying;
+        this.guessedMask = guessedMask;
+        this.incorrectGuesses = incorrectGuesses;
+        this.lettersRemaining = lettersRemaining;
+        if (getTotalWordsGuessed() < words.length) {
+            resetDisplay(getCurrentWord());
+            for (int letters = guessedMask; letters != 0; letters &= letters - 1) {
+                revealChar((char) ('a' + Integer.numberOfTrailingZeros(letters)));
+            }
+        }
+        renderGuessedChars();
+    }
+
+    /**
+     * Helper function for setupNewWord. Sizes the display buffer for word(growing
+     * it only if needed) and fills it with dashes for letters. Chars outside ASCII
+     * are shown as '?'
+     * 
+     * @param word
+     */
+    private void resetDisplay(Word word) {
+        int length = word.getWordLength(true);
+        displayLength = length == 0 ? 0 : 2 * length - 1;
+        if (displayBuffer.length < displayLength) {
+            displayBuffer = new byte[displayLength];
+        }
+        String text = word.getWordString();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            displayBuffer[2 * i] = (byte) (Word.letterBit(c) != 0 ? '_' : c < 128 ? c : '?');
+            if (i > 0) {
+                displayBuffer[2 * i - 1] = ' ';
+            }
+        }
+    }
+
+    /**
+     * Helper function for addChar. Only touches the positions where c is
+     * 
+     * @param c
+     */
+    private void revealChar(char c) {
+        long positions = getCurrentWord().getPositionMask(c);
+        while (positions != 0) {
+            displayBuffer[2 * Long.numberOfTrailingZeros(positions)] = (byte) c;
+            positions &= positions - 1;
+        }
+    }
+
+    /**
+     * Helper function for addChar and setupNewWord. Rewrites the letters after
+     * the fixed prefix, at most 26 of them
+     */
+    private void renderGuessedChars() {
+        int length = GUESSED_PREFIX.length;
+        int remaining = guessedMask;
+        while (remaining != 0) {
+            guessedCharsBuffer[length++] = (byte) ('a' + Integer.numberOfTrailingZeros(remaining));
+            guessedCharsBuffer[length++] = ',';
+            guessedCharsBuffer[length++] = ' ';
+            remaining &= remaining - 1;
+        }
+        // Remove trailing comma and space
+        guessedCharsLength = length - 2;
+    }
+
 }
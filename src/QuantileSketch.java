@@ -0,0 +1,209 @@
+/**
+ * Streaming quantile sketch(KLL) over doubles. Values are kept in levels,
+ * each value of level h standing for 2^h values added. When a level is full
+ * it is sorted and every other value, starting at a random one of the first
+ * two, moves up a level, so the sketch holds at most about 3k values however
+ * many are added. Quantiles are off by about 2 / k of the count(0.9% for the
+ * default k over 2 million values).
+ *
+ * Thread safe, every method locks the sketch.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class QuantileSketch {
+    // Constants
+    public static final int DEFAULT_K = 200;
+    private static final double DECAY = 2.0 / 3; // each level below the top holds this much less
+
+    private final int k;
+    private final ArrayList<double[]> levels = new ArrayList<double[]>(); // level h has weight 2^h
+    private final ArrayList<Integer> sizes = new ArrayList<Integer>();
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k) {
+        if (k < 8) {
+            throw new IllegalArgumentException("k must be at least 8, was " + k);
+        }
+        this.k = k;
+        addLevel();
+    }
+
+    public synchronized void add(double value) {
+        if (count == 0 || value < min) {
+            min = value;
+        }
+        if (count == 0 || value > max) {
+            max = value;
+        }
+        count++;
+        append(0, value);
+        compress();
+    }
+
+    /**
+     * Adds every value other has seen
+     *
+     * @param other
+     */
+    public void merge(QuantileSketch other) {
+        double[][] otherLevels;
+        int[] otherSizes;
+        long otherCount;
+        double otherMin;
+        double otherMax;
+        // copied first, so the two sketches are never locked at once
+        synchronized (other) {
+            otherLevels = new double[other.levels.size()][];
+            otherSizes = new int[otherLevels.length];
+            for (int h = 0; h < otherLevels.length; h++) {
+                otherSizes[h] = other.sizes.get(h);
+                otherLevels[h] = Arrays.copyOf(other.levels.get(h), otherSizes[h]);
+            }
+            otherCount = other.count;
+            otherMin = other.min;
+            otherMax = other.max;
+        }
+        if (otherCount == 0) {
+            return;
+        }
+        synchronized (this) {
+            min = count == 0 ? otherMin : Math.min(min, otherMin);
+            max = count == 0 ? otherMax : Math.max(max, otherMax);
+            count += otherCount;
+            for (int h = 0; h < otherLevels.length; h++) {
+                for (int i = 0; i < otherSizes[h]; i++) {
+                    append(h, otherLevels[h][i]);
+                }
+            }
+            compress();
+        }
+    }
+
+    /**
+     * Returns a value with about q of the values added at or below it. q of 0
+     * and 1 give the exact minimum and maximum. NaN if nothing was added
+     *
+     * @param q
+     * @return
+     */
+    public synchronized double getQuantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        // values with their weights, sorted by value
+        int total = getRetained();
+        double[] values = new double[total];
+        long[] weights = new long[total];
+        int i = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            double[] level = levels.get(h);
+            for (int j = 0; j < sizes.get(h); j++) {
+                values[i] = level[j];
+                weights[i] = 1L << h;
+                i++;
+            }
+        }
+        Integer[] order = new Integer[total];
+        for (i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (Integer o1, Integer o2) -> Double.compare(values[o1], values[o2]));
+
+        // compacting never changes the total weight, so it is still count
+        double target = q * count;
+        long cumulative = 0;
+        for (int index : order) {
+            cumulative += weights[index];
+            if (cumulative >= target) {
+                return values[index];
+            }
+        }
+        return max;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns how many values the sketch holds, for checking its memory use
+     *
+     * @return
+     */
+    public synchronized int getRetained() {
+        int retVar = 0;
+        for (int size : sizes) {
+            retVar += size;
+        }
+        return retVar;
+    }
+
+    // The top level holds k values, each one below DECAY times as many, but at least 2
+    private int capacity(int h) {
+        int depth = levels.size() - 1 - h;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+    }
+
+    private void addLevel() {
+        levels.add(new double[2]);
+        sizes.add(0);
+    }
+
+    private void append(int h, double value) {
+        while (h >= levels.size()) {
+            addLevel();
+        }
+        double[] level = levels.get(h);
+        int size = sizes.get(h);
+        if (size == level.length) {
+            level = Arrays.copyOf(level, 2 * level.length);
+            levels.set(h, level);
+        }
+        level[size] = value;
+        sizes.set(h, size + 1);
+    }
+
+    /**
+     * Compacts every level over its capacity, lowest first. Half of a level's
+     * values, every other one once sorted, move up and the rest are dropped, so
+     * the total weight does not change. An odd value out stays
+     */
+    private void compress() {
+        for (int h = 0; h < levels.size(); h++) {
+            int size = sizes.get(h);
+            if (size < capacity(h)) {
+                continue;
+            }
+            double[] level = levels.get(h);
+            Arrays.sort(level, 0, size);
+            int paired = size & ~1;
+            int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+            // the odd value out is kept at the start of the level
+            int kept = size - paired;
+            double leftOver = kept == 1 ? level[size - 1] : 0;
+            for (int i = offset; i < paired; i += 2) {
+                append(h + 1, level[i]);
+            }
+            level = levels.get(h);
+            if (kept == 1) {
+                level[0] = leftOver;
+            }
+            sizes.set(h, kept);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+
+/**
+ * Checks that GameReplay rebuilds every game of a GameEventLog exactly as it
+ * was, both from the snapshots and from every guess(--full). Random games are
+ * played into a temporary log, some attached part way through and some left
+ * unfinished, and each replay is compared with the live games through
+ * GameStateCodec.writeState.
+ *
+ * Then the log is closed while games are still going, and the games must play
+ * on, be marked failed and still replay to where the log stopped.
+ *
+ * Run after changing the log, the replay or the codec. Exits with an
+ * IllegalStateException naming the first game that differs.
+ *
+ * Options:
+ * --games N         games to play(default 500)
+ * --interval N      guesses between snapshots(default 7)
+ * --seed S          seed for the words, players and guesses(default 1)
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class ReplayCheck {
+    // Constants
+    private static final int MAX_PLAYERS = 4;
+    private static final int MAX_WORDS = 4;
+    private static final int MAX_LIVES = 6;
+    private static final int UNFINISHED_ODDS = 4; // one game in this many is left unfinished
+    private static final int ATTACH_LATE_ODDS = 3; // one game in this many is attached part way through
+
+    public static void main(String[] args) throws IOException {
+        int games = 500;
+        int interval = 7;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--interval":
+                    interval = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Path file = Files.createTempFile("replay-check", ".log");
+        try {
+            long start = System.nanoTime();
+            int unfinished = check(file, games, interval, new Random(seed));
+            System.out.println("Replays with and without snapshots match " + games + " games(" + unfinished
+                    + " unfinished, the log closed under them), " + (System.nanoTime() - start) / 1000000 + " ms");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Plays games random games into a new log at file and compares both replays
+     * with them, before and after the log is closed under the unfinished ones.
+     * Returns how many were unfinished. Throws IllegalStateException at the
+     * first difference
+     *
+     * @param file
+     * @param games
+     * @param interval
+     * @param random
+     * @return
+     * @throws IOException
+     */
+    public static int check(Path file, int games, int interval, Random random) throws IOException {
+        WordCorpus corpus = FileInterfacer.getCorpus();
+        GameEventLog log = new GameEventLog(file, 1000, interval);
+        TreeMap<Long, Game> live = new TreeMap<Long, Game>();
+        int nextPlayerId = 0;
+        for (int n = 0; n < games; n++) {
+            Player[] players = new Player[1 + random.nextInt(MAX_PLAYERS)];
+            for (int i = 0; i < players.length; i++) {
+                players[i] = new Player("p" + nextPlayerId, nextPlayerId++);
+            }
+            int numberOfWords = 1 + random.nextInt(MAX_WORDS);
+            int difficulty = random.nextInt(corpus.getNumDifficulties());
+            Game game = new Game(difficulty, pickWords(corpus, difficulty, numberOfWords * players.length, random),
+                    numberOfWords, players, 1 + random.nextInt(MAX_LIVES));
+
+            boolean unfinished = random.nextInt(UNFINISHED_ODDS) == 0;
+            if (random.nextInt(ATTACH_LATE_ODDS) == 0) {
+                play(game, random.nextInt(20), random);
+            }
+            live.put(log.attach(game), game);
+            play(game, unfinished ? random.nextInt(30) : Integer.MAX_VALUE, random);
+        }
+        log.sync();
+        TreeMap<Long, byte[]> states = new TreeMap<Long, byte[]>();
+        for (Map.Entry<Long, Game> entry : live.entrySet()) {
+            states.put(entry.getKey(), state(entry.getValue()));
+        }
+        compare(file, states, "");
+
+        // the log goes away under the unfinished games, which have to play on without it
+        log.close();
+        TreeMap<Long, byte[]> loggedStates = new TreeMap<Long, byte[]>();
+        for (Map.Entry<Long, Game> entry : live.entrySet()) {
+            Game game = entry.getValue();
+            if (game.isGameOver()) {
+                if (log.hasFailed(entry.getKey())) {
+                    throw new IllegalStateException("Game " + entry.getKey() + " was fully logged but marked failed");
+                }
+                continue;
+            }
+            loggedStates.put(entry.getKey(), states.get(entry.getKey()));
+            play(game, Integer.MAX_VALUE, random);
+            if (!game.isGameOver() || !log.hasFailed(entry.getKey())) {
+                throw new IllegalStateException("Game " + entry.getKey() + " did not play on past its log");
+            }
+        }
+        compare(file, loggedStates, " when its log closed");
+        return loggedStates.size();
+    }
+
+    /**
+     * Helper function for check. Replays file with and without snapshots, every
+     * game in states must be in the state written there
+     *
+     * @param file
+     * @param states
+     * @param when
+     * @throws IOException
+     */
+    private static void compare(Path file, Map<Long, byte[]> states, String when) throws IOException {
+        for (boolean useSnapshots : new boolean[] { true, false }) {
+            Map<Long, Game> replayed = GameReplay.replay(file, -1, useSnapshots);
+            for (Map.Entry<Long, byte[]> entry : states.entrySet()) {
+                Game game = replayed.get(entry.getKey());
+                if (game == null || !Arrays.equals(entry.getValue(), state(game))) {
+                    throw mismatch(entry.getKey(), useSnapshots, when);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper function for check. Returns num words of the bucket, sorted by
+     * frequency like FileInterfacer.getRandomWords, but picked with random so a
+     * seed repeats the games
+     *
+     * @param corpus
+     * @param difficulty
+     * @param num
+     * @param random
+     * @return
+     */
+    private static Word[] pickWords(WordCorpus corpus, int difficulty, int num, Random random) {
+        int[] indices = new int[num];
+        int picked = 0;
+        while (picked < num) {
+            int index = random.nextInt(corpus.size(difficulty));
+            boolean seen = false;
+            for (int i = 0; i < picked; i++) {
+                seen |= indices[i] == index;
+            }
+            if (!seen) {
+                indices[picked++] = index;
+            }
+        }
+        // buckets are in frequency order
+        Arrays.sort(indices);
+        Word[] retVar = new Word[num];
+        for (int i = 0; i < num; i++) {
+            retVar[i] = corpus.getWord(difficulty, indices[i]);
+        }
+        return retVar;
+    }
+
+    // Plays at most guesses random guesses, none repeated within a word
+    private static void play(Game game, int guesses, Random random) {
+        for (int n = 0; n < guesses && !game.isGameOver(); n++) {
+            Player player = game.getCurrentPlayer();
+            char guess;
+            do {
+                guess = (char) ('a' + random.nextInt(Word.NUM_LETTERS));
+            } while ((player.getGuessedMask() & Word.letterBit(guess)) != 0);
+            game.applyGuess(player.getPlayerId(), guess);
+        }
+    }
+
+    private static byte[] state(Game game) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            GameStateCodec.writeState(game, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static IllegalStateException mismatch(long gameId, boolean useSnapshots, String when) {
+        return new IllegalStateException("Game " + gameId + " replayed " + (useSnapshots ? "from snapshots" : "in full")
+                + " differs from the game" + when);
+    }
+}
@@ -0,0 +1,266 @@
+
+/**
+ * Picks random words from a data file in a single pass without knowing its size
+ * or keeping more than the chosen words in memory. Meant for dictionaries too
+ * large to load as a WordCorpus.
+ *
+ * Uniform sampling uses reservoir sampling (Algorithm R). Weighted sampling uses
+ * A-Res (Efraimidis and Spirakis), where each line's frequency is its weight, so
+ * common words are more likely to be chosen.
+ *
+ * Lines that are not words are skipped, and so are words longer than
+ * Word.MAX_LENGTH, which are counted(see getTooLong).
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ReservoirSampler {
+    // Constants
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final int num;
+    private final boolean weighted;
+    private long tooLong; // lines skipped for their word's length
+
+    // Uniform mode
+    private final Word[] reservoir;
+    private long linesSeen;
+
+    // Weighted mode, smallest key on top so it is the first to be replaced
+    private final PriorityQueue<KeyedWord> heap;
+
+    /**
+     * Creates a sampler that will keep num words
+     * 
+     * @param num
+     * @param weighted true to weight each word by its frequency
+     */
+    public ReservoirSampler(int num, boolean weighted) {
+        if (num < 0) {
+            throw new IllegalArgumentException("Cannot sample " + num + " words");
+        }
+        this.num = num;
+        this.weighted = weighted;
+        this.reservoir = weighted ? null : new Word[num];
+        this.heap = weighted ? new PriorityQueue<KeyedWord>(Math.max(1, num)) : null;
+    }
+
+    /**
+     * Reads every "wordString,frequency" line of file and returns num of them,
+     * sorted by frequency like getRandomWords. Throws if the file has fewer than
+     * num words
+     * 
+     * @param file
+     * @param num
+     * @param weighted
+     * @return
+     * @throws IOException
+     */
+    public static Word[] sample(Path file, int num, boolean weighted) throws IOException {
+        ReservoirSampler sampler = new ReservoirSampler(num, weighted);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            sampler.readAll(channel);
+        }
+        if (sampler.getTooLong() > 0) {
+            System.err.println("Skipped " + sampler.getTooLong() + " words longer than " + Word.MAX_LENGTH
+                    + " characters in " + file);
+        }
+        return sampler.getSample();
+    }
+
+    /**
+     * Offers every line readable from channel to the sampler
+     * 
+     * @param channel
+     * @throws IOException
+     */
+    public void readAll(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        byte[] line = new byte[128]; // grows if a longer line shows up
+        int lineLength = 0;
+
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    offerLine(line, lineLength);
+                    lineLength = 0;
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+            buffer.clear();
+        }
+        // last line might not end with a newline
+        offerLine(line, lineLength);
+    }
+
+    /**
+     * Returns how many lines were skipped for having a word longer than
+     * Word.MAX_LENGTH
+     * 
+     * @return
+     */
+    public long getTooLong() {
+        return tooLong;
+    }
+
+    /**
+     * Returns the chosen words sorted by frequency
+     * 
+     * @return
+     */
+    public Word[] getSample() {
+        Word[] retVar;
+        if (weighted) {
+            if (heap.size() < num) {
+                throw new IllegalArgumentException(
+                        "Requested " + num + " words but only " + heap.size() + " had a weight");
+            }
+            retVar = new Word[heap.size()];
+            int i = 0;
+            for (KeyedWord keyedWord : heap) {
+                retVar[i++] = keyedWord.word;
+            }
+        } else {
+            if (linesSeen < num) {
+                throw new IllegalArgumentException("Requested " + num + " words but only " + linesSeen + " exist");
+            }
+            retVar = reservoir.clone();
+        }
+        Arrays.sort(retVar);
+        return retVar;
+    }
+
+    /**
+     * Helper function for readAll. Words are only decoded if they make it into
+     * the sample
+     * 
+     * @param line
+     * @param length
+     */
+    private void offerLine(byte[] line, int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        int comma = -1;
+        for (int i = 0; i < length; i++) {
+            if (line[i] == ',') {
+                comma = i;
+                break;
+            }
+        }
+        if (comma <= 0 || num == 0) {
+            return; // blank or not a word
+        }
+        if (decodedLength(line, comma) > Word.MAX_LENGTH) {
+            tooLong++;
+            return;
+        }
+
+        if (weighted) {
+            double frequency = parseFrequency(line, comma + 1, length);
+            if (!(frequency > 0)) {
+                return; // zero weight can never be picked
+            }
+            // A-Res key u^(1/w), compared through its log so tiny values keep precision
+            double key = Math.log(ThreadLocalRandom.current().nextDouble()) / frequency;
+            if (heap.size() < num) {
+                heap.add(new KeyedWord(key, decode(line, comma, frequency)));
+            } else if (key > heap.peek().key) {
+                heap.poll();
+                heap.add(new KeyedWord(key, decode(line, comma, frequency)));
+            }
+        } else {
+            linesSeen++;
+            if (linesSeen <= num) {
+                reservoir[(int) linesSeen - 1] = decode(line, comma, parseFrequency(line, comma + 1, length));
+            } else {
+                long j = ThreadLocalRandom.current().nextLong(linesSeen);
+                if (j < num) {
+                    reservoir[(int) j] = decode(line, comma, parseFrequency(line, comma + 1, length));
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper function for offerLine. Returns the length decode's String would
+     * have, without creating it: one char per UTF-8 sequence, two for the 4 byte
+     * ones
+     * 
+     * @param line
+     * @param wordLength
+     * @return
+     */
+    private static int decodedLength(byte[] line, int wordLength) {
+        int retVar = 0;
+        for (int i = 0; i < wordLength; i++) {
+            int b = line[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                retVar += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return retVar;
+    }
+
+    private static Word decode(byte[] line, int wordLength, double frequency) {
+        return new Word(new String(line, 0, wordLength, StandardCharsets.UTF_8), frequency);
+    }
+
+    /**
+     * Parses plain decimals such as "4.31" without creating a String. Anything
+     * more unusual is handed to Double.parseDouble
+     * 
+     * @param line
+     * @param start
+     * @param end
+     * @return
+     */
+    private static double parseFrequency(byte[] line, int start, int end) {
+        long digits = 0;
+        int decimals = -1; // -1 until the decimal point is seen
+        for (int i = start; i < end; i++) {
+            byte b = line[i];
+            if (b >= '0' && b <= '9' && digits < Long.MAX_VALUE / 10) {
+                digits = digits * 10 + (b - '0');
+                if (decimals != -1) {
+                    decimals++;
+                }
+            } else if (b == '.' && decimals == -1) {
+                decimals = 0;
+            } else {
+                return Double.parseDouble(new String(line, start, end - start, StandardCharsets.UTF_8).trim());
+            }
+        }
+        return decimals <= 0 ? digits : digits / Math.pow(10, decimals);
+    }
+
+    // Heap entry for weighted sampling
+    private static class KeyedWord implements Comparable<KeyedWord> {
+        private final double key;
+        private final Word word;
+
+        private KeyedWord(double key, Word word) {
+            this.key = key;
+            this.word = word;
+        }
+
+        @Override
+        public int compareTo(KeyedWord o) {
+            return Double.compare(this.key, o.key);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+
+/**
+ * Decides how many points a correct guess is worth. Game uses ClassicScoring
+ * unless told otherwise, tournaments can plug in their own rules with
+ * Game.setScoringPolicy. Called on every correct guess, so implementations
+ * should do their work up front and keep this to lookups.
+ */
+
+public interface ScoringPolicy {
+
+    /**
+     * Returns the points for guessing a letter found occurrences times in word.
+     * lettersRemaining is how many letters were still hidden before the guess,
+     * difficulty is the game's bucket starting at 0
+     * 
+     * @param word
+     * @param lettersRemaining
+     * @param occurrences
+     * @param difficulty
+     * @return
+     */
+    int scoreCorrectGuess(Word word, int lettersRemaining, int occurrences, int difficulty);
+}
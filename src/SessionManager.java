@@ -0,0 +1,168 @@
+
+/**
+ * Creates and tracks the games hosted by one JVM. Each session's turn loop runs
+ * on its own virtual thread when the runtime has them(Java 21+), otherwise on a
+ * pooled platform thread.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SessionManager {
+    private final ExecutorService executor = newSessionExecutor();
+    private final ConcurrentHashMap<Long, Game> sessions = new ConcurrentHashMap<Long, Game>();
+    private final AtomicLong nextSessionId = new AtomicLong(1);
+    private final AtomicInteger nextPlayerId = new AtomicInteger();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private volatile GameEventLog eventLog; // optional, every registered game is logged to it
+    private volatile DifficultyCalibrator calibrator; // optional, sees every registered game
+
+    // Statistics
+    private final LongAdder sessionsStarted = new LongAdder();
+    private final LongAdder sessionsFinished = new LongAdder();
+    private final LatencyHistogram guessLatency = new LatencyHistogram();
+
+    /**
+     * Returns an executor that starts a virtual thread per task, falling back to
+     * a cached pool on runtimes without virtual threads
+     * 
+     * @return
+     */
+    public static ExecutorService newSessionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Creates a game for the given players, drawing words from FileInterfacer,
+     * and registers it. Players get ids unique across all sessions and report
+     * their scores to the shared leaderboard
+     * 
+     * @param difficulty
+     * @param numberOfWords
+     * @param livesPerPlayer
+     * @param names
+     * @return the new session id
+     */
+    public long createSession(int difficulty, int numberOfWords, int livesPerPlayer, String[] names) {
+        Player[] players = new Player[names.length];
+        for (int i = 0; i < names.length; i++) {
+            players[i] = new Player(names[i], nextPlayerId.getAndIncrement());
+            players[i].setLeaderboard(leaderboard);
+        }
+        return register(new Game(difficulty, numberOfWords, players, livesPerPlayer));
+    }
+
+    /**
+     * Registers an existing game and returns its session id
+     * 
+     * @param game
+     * @return
+     */
+    public long register(Game game) {
+        GameEventLog log = eventLog;
+        if (log != null) {
+            try {
+                log.attach(game);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        DifficultyCalibrator currCalibrator = calibrator;
+        if (currCalibrator != null) {
+            game.addListener(currCalibrator);
+        }
+        long id = nextSessionId.getAndIncrement();
+        sessions.put(id, game);
+        sessionsStarted.increment();
+        return id;
+    }
+
+    /**
+     * Runs the session's turn loop on the calling thread until the game ends or
+     * source fails, then removes the session
+     * 
+     * @param sessionId
+     * @param source
+     */
+    public void runSession(long sessionId, GuessSource source) {
+        Game game = sessions.get(sessionId);
+        if (game == null) {
+            throw new IllegalArgumentException("No session " + sessionId);
+        }
+        try {
+            game.runGame(source);
+        } finally {
+            sessions.remove(sessionId);
+            sessionsFinished.increment();
+        }
+    }
+
+    /**
+     * Runs task on a new session thread
+     * 
+     * @param task
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public Game getSession(long sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * Logs every game registered from now on to log, see GameEventLog
+     * 
+     * @param log
+     */
+    public void setEventLog(GameEventLog log) {
+        eventLog = log;
+    }
+
+    /**
+     * Feeds every game registered from now on to calibrator, see
+     * DifficultyCalibrator
+     * 
+     * @param calibrator
+     */
+    public void setCalibrator(DifficultyCalibrator calibrator) {
+        this.calibrator = calibrator;
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    public long getSessionsStarted() {
+        return sessionsStarted.sum();
+    }
+
+    public long getSessionsFinished() {
+        return sessionsFinished.sum();
+    }
+
+    // Time from a guess arriving to its reply being sent, recorded by the servers
+    public LatencyHistogram getGuessLatency() {
+        return guessLatency;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
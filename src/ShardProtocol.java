@@ -0,0 +1,84 @@
+/**
+ * Binary protocol between ShardRouter and ShardWorker. Every message is a
+ * frame: [length, int][payload]. A request payload starts with its op, a reply
+ * payload with a status, and STATUS_ERROR is followed by a message(writeUTF).
+ * Everything else is written with DataOutput.
+ *
+ * Requests and their replies(after STATUS_OK):
+ * CREATE:   [sessionId, long][difficulty][words per player][lives][players]([playerId][name, UTF])...
+ *           -> nothing, the first player listed has the first turn
+ * GUESS:    [sessionId, long][playerId][letter, char]
+ *           -> [outcome, byte][flags, byte][scoreDelta][lives remaining][score][display][next playerId]
+ * EXPORT:   [sessionId, long] -> [game, see GameStateCodec.writeGame]. The worker drops the session
+ * IMPORT:   [sessionId, long][game] -> nothing
+ * LIST:     -> [sessions]([sessionId, long])...
+ * SHUTDOWN: -> nothing, then the worker exits
+ *
+ * Unmarked values are ints. display is [length, short][ASCII bytes] of the
+ * guessing player's display(see Player.getDisplayBuffer), next playerId is -1
+ * once the game is over.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class ShardProtocol {
+    // Constants
+    public static final byte OP_CREATE = 1;
+    public static final byte OP_GUESS = 2;
+    public static final byte OP_EXPORT = 3;
+    public static final byte OP_IMPORT = 4;
+    public static final byte OP_LIST = 5;
+    public static final byte OP_SHUTDOWN = 6;
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+    public static final byte FLAG_WORD_GUESSED = 1;
+    public static final byte FLAG_WORD_LOST = 2;
+    public static final byte FLAG_PLAYER_FINISHED = 4;
+    public static final byte FLAG_GAME_OVER = 8;
+    public static final int MAX_FRAME_BYTES = 1 << 24; // a frame this big is a broken stream
+
+    /**
+     * Writes payload as one frame and flushes
+     *
+     * @param out
+     * @param payload
+     * @throws IOException
+     */
+    public static void writeFrame(DataOutputStream out, ByteArrayOutputStream payload) throws IOException {
+        out.writeInt(payload.size());
+        payload.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Reads the next frame and returns its payload
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static DataInputStream readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Bad frame length " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new DataInputStream(new ByteArrayInputStream(payload));
+    }
+
+    public static void writeDisplay(Player player, DataOutputStream out) throws IOException {
+        out.writeShort(player.getDisplayLength());
+        out.write(player.getDisplayBuffer(), 0, player.getDisplayLength());
+    }
+
+    public static byte[] readDisplay(DataInputStream in) throws IOException {
+        byte[] retVar = new byte[in.readUnsignedShort()];
+        in.readFully(retVar);
+        return retVar;
+    }
+}
@@ -0,0 +1,632 @@
+/**
+ * Spreads sessions over several ShardWorker processes. A session lives on the
+ * worker its id maps to on a HashRing, and every guess is forwarded there over
+ * ShardProtocol. Players are kept with the game they play in, so a player id
+ * maps to the worker of its session.
+ *
+ * When a worker joins, the sessions the ring now gives it are exported from
+ * their old workers and imported into it. When a worker leaves, all of its
+ * sessions move to their new workers first. Guesses wait while sessions move.
+ * If a move fails, the ring and the sessions already moved go back to how they
+ * were, so every session stays on the worker the ring gives it.
+ * A worker that dies without leaving loses its sessions, see GameEventLog for
+ * keeping them.
+ *
+ * main launches worker processes on localhost, plays bot games through the
+ * router while one worker joins and one leaves, and checks every game ends.
+ * Options:
+ * --workers N       workers at the start(default 3)
+ * --games N         games to play(default 1000)
+ * --difficulty D    difficulty bucket, starting at 1(default 1)
+ * --words N         words per player(default 3)
+ * --lives N         lives per player(default 10)
+ * --players N       players per game(default 2)
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ShardRouter implements Closeable {
+    // Constants
+    private static final String GUESS_ORDER = "etaoinshrdlcumwfgypbvkjxqz"; // for the bots of main
+
+    private final HashRing ring;
+    private final HashMap<String, WorkerClient> workers = new HashMap<String, WorkerClient>();
+    // Guesses and new sessions share the lock, moving sessions takes it alone
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong nextSessionId = new AtomicLong(1);
+    private final AtomicInteger nextPlayerId = new AtomicInteger();
+    private final ConcurrentHashMap<Long, int[]> sessionPlayers = new ConcurrentHashMap<Long, int[]>();
+    private final ConcurrentHashMap<Integer, Long> playerSessions = new ConcurrentHashMap<Integer, Long>();
+    private final LongAdder sessionsMoved = new LongAdder();
+
+    /**
+     * Outcome of one forwarded guess, as the worker reported it
+     */
+    public static class GuessReply {
+        private final GuessResult.Outcome outcome;
+        private final int flags;
+        private final int scoreDelta;
+        private final int livesRemaining;
+        private final int score;
+        private final byte[] display;
+        private final int nextPlayerId;
+
+        private GuessReply(DataInputStream in) throws IOException {
+            outcome = GuessResult.Outcome.values()[in.readUnsignedByte()];
+            flags = in.readUnsignedByte();
+            scoreDelta = in.readInt();
+            livesRemaining = in.readInt();
+            score = in.readInt();
+            display = ShardProtocol.readDisplay(in);
+            nextPlayerId = in.readInt();
+        }
+
+        // Getters
+        public GuessResult.Outcome getOutcome() {
+            return outcome;
+        }
+
+        public int getScoreDelta() {
+            return scoreDelta;
+        }
+
+        public int getLivesRemaining() {
+            return livesRemaining;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        // Display of the player who guessed, already showing their next word if this one is done
+        public byte[] getDisplay() {
+            return display;
+        }
+
+        public boolean isWordDone() {
+            return (flags & (ShardProtocol.FLAG_WORD_GUESSED | ShardProtocol.FLAG_WORD_LOST)) != 0;
+        }
+
+        public boolean isWordGuessed() {
+            return (flags & ShardProtocol.FLAG_WORD_GUESSED) != 0;
+        }
+
+        public boolean isPlayerFinished() {
+            return (flags & ShardProtocol.FLAG_PLAYER_FINISHED) != 0;
+        }
+
+        public boolean isGameOver() {
+            return (flags & ShardProtocol.FLAG_GAME_OVER) != 0;
+        }
+
+        // -1 once the game is over
+        public int getNextPlayerId() {
+            return nextPlayerId;
+        }
+    }
+
+    /**
+     * A session moved between two workers, so it can be moved back
+     */
+    private static class Move {
+        private final long sessionId;
+        private final WorkerClient from;
+        private final WorkerClient to;
+
+        private Move(long sessionId, WorkerClient from, WorkerClient to) {
+            this.sessionId = sessionId;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Connection to one worker. Requests on it are sent one at a time
+     */
+    private static class WorkerClient implements Closeable {
+        private final String name;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private WorkerClient(String name, String host, int port) throws IOException {
+            this.name = name;
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Sends request and returns the reply after its status. Throws
+         * IllegalStateException with the worker's message if it failed
+         */
+        private synchronized DataInputStream call(ByteArrayOutputStream request) throws IOException {
+            ShardProtocol.writeFrame(out, request);
+            DataInputStream reply = ShardProtocol.readFrame(in);
+            if (reply.readByte() != ShardProtocol.STATUS_OK) {
+                throw new IllegalStateException("Worker " + name + ": " + reply.readUTF());
+            }
+            return reply;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    public ShardRouter() {
+        this(HashRing.DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ShardRouter(int virtualNodes) {
+        ring = new HashRing(virtualNodes);
+    }
+
+    /**
+     * Connects to a worker and moves the sessions the ring now gives it there.
+     * Returns the number of sessions moved. If a move fails the worker is not
+     * added and the sessions moved so far go back
+     *
+     * @param name
+     * @param host
+     * @param port
+     * @return
+     * @throws IOException
+     */
+    public int addWorker(String name, String host, int port) throws IOException {
+        WorkerClient client = new WorkerClient(name, host, port);
+        lock.writeLock().lock();
+        try {
+            if (workers.containsKey(name)) {
+                client.close();
+                throw new IllegalArgumentException("Worker " + name + " was already added");
+            }
+            workers.put(name, client);
+            ring.addNode(name);
+            ArrayList<Move> moved = new ArrayList<Move>();
+            try {
+                for (WorkerClient other : workers.values()) {
+                    if (other != client) {
+                        moveMisplaced(other, moved);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                ring.removeNode(name);
+                workers.remove(name);
+                undo(moved, e);
+                client.close();
+                throw e;
+            }
+            sessionsMoved.add(moved.size());
+            return moved.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves every session of a worker to the workers the ring gives them once it
+     * is gone, then disconnects from it. Returns the number of sessions moved.
+     * If a move fails the worker stays and the sessions moved so far go back
+     *
+     * @param name
+     * @return
+     * @throws IOException
+     */
+    public int removeWorker(String name) throws IOException {
+        lock.writeLock().lock();
+        try {
+            WorkerClient client = workers.get(name);
+            if (client == null) {
+                throw new IllegalArgumentException("No worker " + name);
+            }
+            if (workers.size() == 1) {
+                throw new IllegalStateException("The last worker cannot leave");
+            }
+            ring.removeNode(name);
+            ArrayList<Move> moved = new ArrayList<Move>();
+            try {
+                moveMisplaced(client, moved);
+            } catch (IOException | RuntimeException e) {
+                ring.addNode(name);
+                undo(moved, e);
+                throw e;
+            }
+            workers.remove(name);
+            client.close();
+            sessionsMoved.add(moved.size());
+            return moved.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Creates a game on the worker its new session id maps to. Players get ids
+     * unique across all workers, in turn order(see getPlayerIds)
+     *
+     * @param difficulty
+     * @param numberOfWords
+     * @param livesPerPlayer
+     * @param names
+     * @return the new session id
+     * @throws IOException
+     */
+    public long createSession(int difficulty, int numberOfWords, int livesPerPlayer, String[] names)
+            throws IOException {
+        long sessionId = nextSessionId.getAndIncrement();
+        int[] playerIds = new int[names.length];
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(request);
+        data.writeByte(ShardProtocol.OP_CREATE);
+        data.writeLong(sessionId);
+        data.writeInt(difficulty);
+        data.writeInt(numberOfWords);
+        data.writeInt(livesPerPlayer);
+        data.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            playerIds[i] = nextPlayerId.getAndIncrement();
+            data.writeInt(playerIds[i]);
+            data.writeUTF(names[i]);
+        }
+
+        lock.readLock().lock();
+        try {
+            getWorker(sessionId).call(request);
+        } finally {
+            lock.readLock().unlock();
+        }
+        sessionPlayers.put(sessionId, playerIds);
+        for (int playerId : playerIds) {
+            playerSessions.put(playerId, sessionId);
+        }
+        return sessionId;
+    }
+
+    /**
+     * Forwards a guess to the session's worker. Throws IllegalStateException if
+     * the worker rejected it, e.g. because it is not playerId's turn
+     *
+     * @param sessionId
+     * @param playerId
+     * @param guess
+     * @return
+     * @throws IOException
+     */
+    public GuessReply guess(long sessionId, int playerId, char guess) throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream(16);
+        DataOutputStream data = new DataOutputStream(request);
+        data.writeByte(ShardProtocol.OP_GUESS);
+        data.writeLong(sessionId);
+        data.writeInt(playerId);
+        data.writeChar(guess);
+
+        GuessReply retVar;
+        lock.readLock().lock();
+        try {
+            retVar = new GuessReply(getWorker(sessionId).call(request));
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (retVar.isGameOver()) {
+            // the worker dropped the session
+            int[] playerIds = sessionPlayers.remove(sessionId);
+            for (int id : playerIds == null ? new int[0] : playerIds) {
+                playerSessions.remove(id);
+            }
+        }
+        return retVar;
+    }
+
+    /**
+     * Returns the ids of the session's players in turn order, or null if the
+     * session is over or unknown
+     *
+     * @param sessionId
+     * @return
+     */
+    public int[] getPlayerIds(long sessionId) {
+        int[] playerIds = sessionPlayers.get(sessionId);
+        return playerIds == null ? null : playerIds.clone();
+    }
+
+    /**
+     * Returns the name of the worker hosting the session
+     *
+     * @param sessionId
+     * @return
+     */
+    public String getWorkerForSession(long sessionId) {
+        lock.readLock().lock();
+        try {
+            return ring.getNode(sessionId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the name of the worker hosting the player's session, or null if
+     * the player is not in a session
+     *
+     * @param playerId
+     * @return
+     */
+    public String getWorkerForPlayer(int playerId) {
+        Long sessionId = playerSessions.get(playerId);
+        return sessionId == null ? null : getWorkerForSession(sessionId);
+    }
+
+    public int getNumSessions() {
+        return sessionPlayers.size();
+    }
+
+    public long getSessionsMoved() {
+        return sessionsMoved.sum();
+    }
+
+    /**
+     * Asks every worker to exit and disconnects from them
+     *
+     * @throws IOException
+     */
+    public void shutdownWorkers() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (WorkerClient client : workers.values()) {
+                ByteArrayOutputStream request = new ByteArrayOutputStream(1);
+                request.write(ShardProtocol.OP_SHUTDOWN);
+                client.call(request);
+            }
+            close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (WorkerClient client : workers.values()) {
+                client.close();
+            }
+            workers.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Helper function for addWorker and removeWorker, called with the write lock
+     * held. Moves the sessions of from that the ring gives to another worker and
+     * adds each one to moved
+     *
+     * @param from
+     * @param moved
+     * @throws IOException
+     */
+    private void moveMisplaced(WorkerClient from, List<Move> moved) throws IOException {
+        ByteArrayOutputStream list = new ByteArrayOutputStream(1);
+        list.write(ShardProtocol.OP_LIST);
+        DataInputStream reply = from.call(list);
+        long[] sessionIds = new long[reply.readInt()];
+        for (int i = 0; i < sessionIds.length; i++) {
+            sessionIds[i] = reply.readLong();
+        }
+
+        for (long sessionId : sessionIds) {
+            WorkerClient to = getWorker(sessionId);
+            if (to != from) {
+                move(sessionId, from, to);
+                moved.add(new Move(sessionId, from, to));
+            }
+        }
+    }
+
+    /**
+     * Helper function for addWorker and removeWorker, called with the write lock
+     * held once the ring is restored. Moves the sessions in moved back, latest
+     * first. A session that cannot go back is lost, which is added to failure
+     *
+     * @param moved
+     * @param failure
+     */
+    private static void undo(List<Move> moved, Exception failure) {
+        for (int i = moved.size() - 1; i >= 0; i--) {
+            Move move = moved.get(i);
+            try {
+                move(move.sessionId, move.to, move.from);
+            } catch (IOException | RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Helper function for moveMisplaced. If the import fails the session is put
+     * back where it was
+     *
+     * @param sessionId
+     * @param from
+     * @param to
+     * @throws IOException
+     */
+    private static void move(long sessionId, WorkerClient from, WorkerClient to) throws IOException {
+        ByteArrayOutputStream export = new ByteArrayOutputStream(16);
+        DataOutputStream data = new DataOutputStream(export);
+        data.writeByte(ShardProtocol.OP_EXPORT);
+        data.writeLong(sessionId);
+        byte[] game = from.call(export).readAllBytes();
+        try {
+            to.call(importRequest(sessionId, game));
+        } catch (IOException | IllegalStateException e) {
+            from.call(importRequest(sessionId, game));
+            throw e;
+        }
+    }
+
+    private static ByteArrayOutputStream importRequest(long sessionId, byte[] game) throws IOException {
+        ByteArrayOutputStream retVar = new ByteArrayOutputStream(game.length + 16);
+        DataOutputStream data = new DataOutputStream(retVar);
+        data.writeByte(ShardProtocol.OP_IMPORT);
+        data.writeLong(sessionId);
+        data.write(game);
+        return retVar;
+    }
+
+    private WorkerClient getWorker(long sessionId) {
+        WorkerClient retVar = workers.get(ring.getNode(sessionId));
+        if (retVar == null) {
+            throw new IllegalStateException("No workers");
+        }
+        return retVar;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int numWorkers = 3;
+        int games = 1000;
+        int difficulty = 0;
+        int words = 3;
+        int lives = 10;
+        int players = 2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers":
+                    numWorkers = Integer.parseInt(args[++i]);
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--difficulty":
+                    difficulty = Integer.parseInt(args[++i]) - 1;
+                    break;
+                case "--words":
+                    words = Integer.parseInt(args[++i]);
+                    break;
+                case "--lives":
+                    lives = Integer.parseInt(args[++i]);
+                    break;
+                case "--players":
+                    players = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        ArrayList<Process> processes = new ArrayList<Process>();
+        ShardRouter router = new ShardRouter();
+        try {
+            for (int i = 0; i < numWorkers; i++) {
+                router.addWorker("worker-" + i, InetAddress.getLoopbackAddress().getHostAddress(),
+                        launchWorker(processes));
+            }
+            // the worker joining later is started now, so its start up is not timed
+            int joiningPort = launchWorker(processes);
+            playGames(router, games, difficulty, words, lives, players, numWorkers, joiningPort);
+            router.shutdownWorkers();
+        } finally {
+            router.close();
+            for (Process process : processes) {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper function for main. Plays every game one guess at a time, round
+     * robin, so all of them are in progress when a worker joins after three
+     * guesses per game and worker-0 leaves after six
+     */
+    private static void playGames(ShardRouter router, int games, int difficulty, int words, int lives,
+            int players, int numWorkers, int joiningPort) throws IOException {
+        String[] names = new String[players];
+        for (int i = 0; i < players; i++) {
+            names[i] = "bot" + i;
+        }
+        long start = System.nanoTime();
+        List<long[]> active = new ArrayList<long[]>(); // {sessionId, playerId whose turn it is}
+        HashMap<Integer, Integer> nextLetter = new HashMap<Integer, Integer>();
+        for (int i = 0; i < games; i++) {
+            long sessionId = router.createSession(difficulty, words, lives, names);
+            active.add(new long[] { sessionId, router.getPlayerIds(sessionId)[0] });
+        }
+
+        int pass = 0;
+        long guesses = 0;
+        int finished = 0;
+        while (!active.isEmpty()) {
+            pass++;
+            if (pass == 3) {
+                System.out.println("worker-" + numWorkers + " joined, sessions moved: " + router.addWorker(
+                        "worker-" + numWorkers, InetAddress.getLoopbackAddress().getHostAddress(), joiningPort));
+            } else if (pass == 6) {
+                System.out.println("worker-0 left, sessions moved: " + router.removeWorker("worker-0"));
+            }
+            List<long[]> stillActive = new ArrayList<long[]>(active.size());
+            for (long[] session : active) {
+                int playerId = (int) session[1];
+                int letter = nextLetter.getOrDefault(playerId, 0);
+                GuessReply reply = router.guess(session[0], playerId, GUESS_ORDER.charAt(letter));
+                guesses++;
+                // every word starts over with the most common letter
+                nextLetter.put(playerId, reply.isWordDone() ? 0 : letter + 1);
+                if (reply.isGameOver()) {
+                    finished++;
+                } else {
+                    session[1] = reply.getNextPlayerId();
+                    stillActive.add(session);
+                }
+            }
+            active = stillActive;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Games finished: " + finished + " of " + games + ", guesses: " + guesses
+                + String.format(", guesses per second: %.0f", guesses / seconds) + ", sessions moved: "
+                + router.getSessionsMoved());
+        if (finished != games || router.getNumSessions() != 0) {
+            throw new IllegalStateException("Not every game ended");
+        }
+    }
+
+    /**
+     * Helper function for main. Starts a ShardWorker process on a free port and
+     * returns the port once it is listening
+     */
+    private static int launchWorker(List<Process> processes) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "ShardWorker", "0")
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        processes.add(process);
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        String line = out.readLine();
+        if (line == null || !line.startsWith("Listening on port ")) {
+            throw new IOException("Worker did not start: " + line);
+        }
+        return Integer.parseInt(line.substring("Listening on port ".length()));
+    }
+}
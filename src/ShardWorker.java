@@ -0,0 +1,234 @@
+/**
+ * Worker process hosting a share of all sessions for ShardRouter, which
+ * decides which sessions live here. Speaks ShardProtocol over any number of
+ * connections, each served on its own session thread(see SessionManager).
+ * Sessions can be exported to another worker and imported from one, so they
+ * survive workers joining and leaving.
+ *
+ * Arguments: port(0 picks a free port). Prints "Listening on port n" once
+ * ready, which is how ShardRouter finds workers it launched.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+public class ShardWorker {
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = SessionManager.newSessionExecutor();
+    private final ConcurrentHashMap<Long, Game> games = new ConcurrentHashMap<Long, Game>();
+
+    /**
+     * Binds to port on localhost(0 picks a free port)
+     *
+     * @param port
+     * @throws IOException
+     */
+    public ShardWorker(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getNumSessions() {
+        return games.size();
+    }
+
+    /**
+     * Starts accepting connections on a background thread
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::acceptLoop, "shard-worker-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        FileInterfacer.getCorpus();
+        GameMetrics.register();
+
+        ShardWorker worker = new ShardWorker(port);
+        System.out.println("Listening on port " + worker.getPort());
+        worker.acceptLoop();
+        // SHUTDOWN closed the socket, connections still open must not keep the process alive
+        System.exit(0);
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handleConnection(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers requests until the router disconnects
+     *
+     * @param socket
+     */
+    private void handleConnection(Socket socket) {
+        try (Socket currSocket = socket) {
+            currSocket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(currSocket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(currSocket.getOutputStream()));
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream reply = new DataOutputStream(payload);
+            while (true) {
+                DataInputStream request = ShardProtocol.readFrame(in);
+                payload.reset();
+                byte op = request.readByte();
+                try {
+                    reply.writeByte(ShardProtocol.STATUS_OK);
+                    handle(op, request, reply);
+                } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+                    payload.reset();
+                    reply.writeByte(ShardProtocol.STATUS_ERROR);
+                    reply.writeUTF(String.valueOf(e.getMessage()));
+                }
+                ShardProtocol.writeFrame(out, payload);
+                if (op == ShardProtocol.OP_SHUTDOWN) {
+                    stop();
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            // the router went away
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Helper function for handleConnection. Carries out one request and writes
+     * the rest of its reply
+     *
+     * @param op
+     * @param request
+     * @param reply
+     * @throws IOException
+     */
+    private void handle(byte op, DataInputStream request, DataOutputStream reply) throws IOException {
+        switch (op) {
+            case ShardProtocol.OP_CREATE:
+                create(request, reply);
+                break;
+            case ShardProtocol.OP_GUESS:
+                guess(request, reply);
+                break;
+            case ShardProtocol.OP_EXPORT:
+                long sessionId = request.readLong();
+                Game game = getGame(sessionId);
+                synchronized (game) {
+                    // a guess waiting on the lock sees the session is gone
+                    games.remove(sessionId, game);
+                    GameStateCodec.writeGame(game, reply);
+                }
+                break;
+            case ShardProtocol.OP_IMPORT:
+                sessionId = request.readLong();
+                if (games.putIfAbsent(sessionId, GameStateCodec.readGame(request)) != null) {
+                    throw new IllegalStateException("Session " + sessionId + " is already here");
+                }
+                break;
+            case ShardProtocol.OP_LIST:
+                Long[] sessionIds = games.keySet().toArray(new Long[0]);
+                reply.writeInt(sessionIds.length);
+                for (long id : sessionIds) {
+                    reply.writeLong(id);
+                }
+                break;
+            case ShardProtocol.OP_SHUTDOWN:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown op " + op);
+        }
+    }
+
+    private void create(DataInputStream request, DataOutputStream reply) throws IOException {
+        long sessionId = request.readLong();
+        int difficulty = request.readInt();
+        int numberOfWords = request.readInt();
+        int livesPerPlayer = request.readInt();
+        Player[] players = new Player[request.readInt()];
+        for (int i = 0; i < players.length; i++) {
+            int id = request.readInt();
+            players[i] = new Player(request.readUTF(), id);
+        }
+        Game game = new Game(difficulty, numberOfWords, players, livesPerPlayer);
+        if (games.putIfAbsent(sessionId, game) != null) {
+            throw new IllegalStateException("Session " + sessionId + " is already here");
+        }
+    }
+
+    private void guess(DataInputStream request, DataOutputStream reply) throws IOException {
+        long sessionId = request.readLong();
+        int playerId = request.readInt();
+        char guess = request.readChar();
+        Game game = getGame(sessionId);
+        synchronized (game) {
+            if (games.get(sessionId) != game) {
+                throw new IllegalStateException("Session " + sessionId + " moved to another worker");
+            }
+            GuessResult result = game.applyGuess(playerId, guess);
+            int flags = (result.isWordGuessed() ? ShardProtocol.FLAG_WORD_GUESSED : 0)
+                    | (result.isWordLost() ? ShardProtocol.FLAG_WORD_LOST : 0)
+                    | (result.isPlayerFinished() ? ShardProtocol.FLAG_PLAYER_FINISHED : 0)
+                    | (result.isGameOver() ? ShardProtocol.FLAG_GAME_OVER : 0);
+            Player player = getPlayer(game, playerId);
+            reply.writeByte(result.getOutcome().ordinal());
+            reply.writeByte(flags);
+            reply.writeInt(result.getScoreDelta());
+            reply.writeInt(result.getLivesRemaining());
+            reply.writeInt(player.getScore());
+            ShardProtocol.writeDisplay(player, reply);
+            if (game.isGameOver()) {
+                reply.writeInt(-1);
+                games.remove(sessionId, game);
+            } else {
+                reply.writeInt(game.getCurrentPlayer().getPlayerId());
+            }
+        }
+    }
+
+    private Game getGame(long sessionId) {
+        Game retVar = games.get(sessionId);
+        if (retVar == null) {
+            throw new IllegalArgumentException("No session " + sessionId);
+        }
+        return retVar;
+    }
+
+    private static Player getPlayer(Game game, int playerId) {
+        for (Player player : game.getPlayers()) {
+            if (player.getPlayerId() == playerId) {
+                return player;
+            }
+        }
+        throw new IllegalArgumentException("No player " + playerId);
+    }
+}
@@ -0,0 +1,211 @@
+
+/**
+ * Totals over many simulated games. Not thread safe: each thread fills its own
+ * instance and instances are merged with combine, which is how parallel
+ * streams collect
+ */
+
+import java.util.Arrays;
+
+public class SimulationStats {
+    private final int playersPerGame;
+    private final int wordsPerPlayer;
+
+    private long games;
+    private long wordsGuessed;
+    private long wordsLost;
+    private long cleanSweeps; // games where every player guessed every word
+    private long totalRounds;
+    private int maxRounds;
+    private long totalScore;
+    private long[] scoreCounts = new long[256]; // index is a player's final score
+    private long[] seatWins; // games won outright by the player in each seat
+    private long ties;
+    private long elapsedNanos;
+
+    public SimulationStats(int playersPerGame, int wordsPerPlayer) {
+        this.playersPerGame = playersPerGame;
+        this.wordsPerPlayer = wordsPerPlayer;
+        this.seatWins = new long[playersPerGame];
+    }
+
+    /**
+     * Adds a finished game
+     * 
+     * @param game
+     */
+    public void add(Game game) {
+        Player[] players = game.getPlayers();
+        games++;
+        totalRounds += game.getRounds();
+        maxRounds = Math.max(maxRounds, game.getRounds());
+
+        boolean sweep = true;
+        int best = 0;
+        int bestScore = Integer.MIN_VALUE;
+        boolean tied = false;
+        for (int seat = 0; seat < players.length; seat++) {
+            Player player = players[seat];
+            wordsGuessed += player.getWordsGuessedCorrectly();
+            wordsLost += player.getWordsGuessedIncorrectly();
+            sweep &= player.getWordsGuessedIncorrectly() == 0;
+
+            int score = player.getScore();
+            totalScore += score;
+            recordScore(score);
+            if (score > bestScore) {
+                best = seat;
+                bestScore = score;
+                tied = false;
+            } else if (score == bestScore) {
+                tied = true;
+            }
+        }
+        if (sweep) {
+            cleanSweeps++;
+        }
+        if (tied) {
+            ties++;
+        } else {
+            seatWins[best]++;
+        }
+    }
+
+    /**
+     * Adds everything other has counted
+     * 
+     * @param other
+     */
+    public void combine(SimulationStats other) {
+        games += other.games;
+        wordsGuessed += other.wordsGuessed;
+        wordsLost += other.wordsLost;
+        cleanSweeps += other.cleanSweeps;
+        totalRounds += other.totalRounds;
+        maxRounds = Math.max(maxRounds, other.maxRounds);
+        totalScore += other.totalScore;
+        if (scoreCounts.length < other.scoreCounts.length) {
+            scoreCounts = Arrays.copyOf(scoreCounts, other.scoreCounts.length);
+        }
+        for (int i = 0; i < other.scoreCounts.length; i++) {
+            scoreCounts[i] += other.scoreCounts[i];
+        }
+        for (int i = 0; i < seatWins.length; i++) {
+            seatWins[i] += other.seatWins[i];
+        }
+        ties += other.ties;
+    }
+
+    // Getters
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Fraction of all words that were guessed before running out of lives
+     * 
+     * @return
+     */
+    public double getWordWinRate() {
+        long words = wordsGuessed + wordsLost;
+        return words == 0 ? 0 : (double) wordsGuessed / words;
+    }
+
+    public double getCleanSweepRate() {
+        return games == 0 ? 0 : (double) cleanSweeps / games;
+    }
+
+    public double getMeanRounds() {
+        return games == 0 ? 0 : (double) totalRounds / games;
+    }
+
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    public double getMeanScore() {
+        long scores = games * playersPerGame;
+        return scores == 0 ? 0 : (double) totalScore / scores;
+    }
+
+    /**
+     * Returns the lowest score that at least percentile percent of players
+     * finished with
+     * 
+     * @param percentile
+     * @return
+     */
+    public int getScorePercentile(double percentile) {
+        long scores = games * playersPerGame;
+        long rank = (long) Math.ceil(scores * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < scoreCounts.length; i++) {
+            seen += scoreCounts[i];
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Fraction of games won outright by the player in seat. The seats do not
+     * win about as often: Game.setUpPlayers deals the frequency sorted words
+     * round robin, so seat 0 always gets the rarest, highest scoring word of
+     * each round
+     * 
+     * @param seat
+     * @return
+     */
+    public double getSeatWinRate(int seat) {
+        return games == 0 ? 0 : (double) seatWins[seat] / games;
+    }
+
+    public double getTieRate() {
+        return games == 0 ? 0 : (double) ties / games;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games / (elapsedNanos / 1e9);
+    }
+
+    // Setters
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder retVar = new StringBuilder();
+        retVar.append(String.format("Games: %d (%d players, %d words each) at %.0f games/s%n", games,
+                playersPerGame, wordsPerPlayer, getGamesPerSecond()));
+        retVar.append(String.format("Words guessed: %.2f%%, clean sweeps: %.2f%%%n", 100 * getWordWinRate(),
+                100 * getCleanSweepRate()));
+        retVar.append(String.format("Rounds: mean %.2f, max %d%n", getMeanRounds(), maxRounds));
+        retVar.append(String.format("Score: mean %.1f, p10 %d, p50 %d, p90 %d, p99 %d, max %d%n", getMeanScore(),
+                getScorePercentile(10), getScorePercentile(50), getScorePercentile(90), getScorePercentile(99),
+                getScorePercentile(100)));
+        if (playersPerGame > 1) {
+            retVar.append("Wins by seat:");
+            for (int seat = 0; seat < playersPerGame; seat++) {
+                retVar.append(String.format(" %.2f%%", 100 * getSeatWinRate(seat)));
+            }
+            retVar.append(String.format(", ties %.2f%%%n", 100 * getTieRate()));
+        }
+        return retVar.toString();
+    }
+
+    /**
+     * Helper function for add. Scores are never negative, the counts grow to fit
+     * the highest one
+     * 
+     * @param score
+     */
+    private void recordScore(int score) {
+        int index = Math.max(score, 0);
+        if (index >= scoreCounts.length) {
+            scoreCounts = Arrays.copyOf(scoreCounts, Math.max(index + 1, 2 * scoreCounts.length));
+        }
+        scoreCounts[index]++;
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Plays many complete games between bots without any console output, spread
+ * over the cores of a ForkJoinPool, and prints how they went. Games use the
+ * real rules(Game), so scores and word splitting match production. Used to
+ * tune the score multipliers and difficulty buckets.
+ *
+ * Options:
+ * --games N         games to play(default 100000)
+ * --difficulty D    difficulty bucket, starting at 1(default 1)
+ * --words N         words per player(default 3)
+ * --lives N         lives per player(default 10)
+ * --players N       players per game(default 1)
+ * --bot NAME        frequency, random or entropy(default frequency)
+ * --threads N       worker threads(default one per core)
+ * --target F        pick words near frequency F from the whole corpus instead
+ *                   of one bucket
+ * --spread S        how far from the target words are picked(default 0.5)
+ * --score-multiplier N, --guess-multiplier N
+ *                   ClassicScoring multipliers to try(default 100 and 10)
+ * --calibrate       feed every game to a DifficultyCalibrator and re-bucket the
+ *                   corpus once all games are played
+ */
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class Simulator {
+    private final int difficulty;
+    private final int wordsPerPlayer;
+    private final int lives;
+    private final int playersPerGame;
+    private final GuessSource bot;
+    private double targetFrequency = Double.NaN; // NaN means words come from the difficulty bucket
+    private double spread;
+    private ScoringPolicy scoringPolicy = ClassicScoring.DEFAULT;
+    private DifficultyCalibrator calibrator; // null means games are not fed to one
+
+    /**
+     * difficulty is a bucket of FileInterfacer's corpus, starting at 0
+     * 
+     * @param difficulty
+     * @param wordsPerPlayer
+     * @param lives
+     * @param playersPerGame
+     * @param bot
+     */
+    public Simulator(int difficulty, int wordsPerPlayer, int lives, int playersPerGame, GuessSource bot) {
+        if (wordsPerPlayer < 1 || lives < 1 || playersPerGame < 1) {
+            throw new IllegalArgumentException("Games need at least one player, word and life");
+        }
+        this.difficulty = difficulty;
+        this.wordsPerPlayer = wordsPerPlayer;
+        this.lives = lives;
+        this.playersPerGame = playersPerGame;
+        this.bot = bot;
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int games = 100000;
+        int difficulty = 0;
+        int words = 3;
+        int lives = 10;
+        int players = 1;
+        String botName = "frequency";
+        int threads = Runtime.getRuntime().availableProcessors();
+        double target = Double.NaN;
+        double spread = 0.5;
+        int scoreMultiplier = ClassicScoring.SCORE_MULTIPLIER;
+        int guessMultiplier = ClassicScoring.GUESS_MULTIPLIER;
+        boolean calibrate = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--difficulty":
+                    difficulty = Integer.parseInt(args[++i]) - 1;
+                    break;
+                case "--words":
+                    words = Integer.parseInt(args[++i]);
+                    break;
+                case "--lives":
+                    lives = Integer.parseInt(args[++i]);
+                    break;
+                case "--players":
+                    players = Integer.parseInt(args[++i]);
+                    break;
+                case "--bot":
+                    botName = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--target":
+                    target = Double.parseDouble(args[++i]);
+                    break;
+                case "--spread":
+                    spread = Double.parseDouble(args[++i]);
+                    break;
+                case "--score-multiplier":
+                    scoreMultiplier = Integer.parseInt(args[++i]);
+                    break;
+                case "--guess-multiplier":
+                    guessMultiplier = Integer.parseInt(args[++i]);
+                    break;
+                case "--calibrate":
+                    calibrate = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        // the entropy solver knows every word of the corpus, like a player who read the data files
+        GuessSource bot = botName.equals("entropy") ? new EntropySolver(new CorpusIndex(FileInterfacer.getCorpus()))
+                : new BotGuessSource(BotGuessSource.Strategy.valueOf(botName.toUpperCase()));
+        Simulator simulator = new Simulator(difficulty, words, lives, players, bot);
+        if (!Double.isNaN(target)) {
+            simulator.setFrequencyCurve(target, spread);
+        }
+        simulator.setScoringPolicy(new ClassicScoring(scoreMultiplier, guessMultiplier));
+        DifficultyCalibrator calibrator = calibrate ? new DifficultyCalibrator() : null;
+        simulator.setCalibrator(calibrator);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            System.out.print(simulator.run(games, pool));
+            if (calibrator != null) {
+                printCalibration(calibrator);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Picks words near targetFrequency from the whole corpus instead of from the
+     * difficulty bucket, see FileInterfacer.getWordsNearFrequency. Scores still
+     * use the difficulty
+     * 
+     * @param targetFrequency
+     * @param spread
+     */
+    public void setFrequencyCurve(double targetFrequency, double spread) {
+        this.targetFrequency = targetFrequency;
+        this.spread = spread;
+    }
+
+    public void setScoringPolicy(ScoringPolicy scoringPolicy) {
+        this.scoringPolicy = scoringPolicy;
+    }
+
+    public void setCalibrator(DifficultyCalibrator calibrator) {
+        this.calibrator = calibrator;
+    }
+
+    /**
+     * Helper function for main. Re-buckets the corpus and prints how it changed
+     * 
+     * @param calibrator
+     */
+    private static void printCalibration(DifficultyCalibrator calibrator) {
+        WordCorpus before = FileInterfacer.getCorpus();
+        long start = System.nanoTime();
+        int moved = calibrator.recalibrate();
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        WordCorpus after = FileInterfacer.getCorpus();
+        System.out.println("Calibration: " + calibrator.getNumWordsSeen() + " words seen in " + calibrator.getPlays()
+                + " plays, incorrect guesses p50/p90/p99 " + calibrator.getIncorrectGuessQuantile(0.5) + "/"
+                + calibrator.getIncorrectGuessQuantile(0.9) + "/" + calibrator.getIncorrectGuessQuantile(0.99));
+        StringBuilder line = new StringBuilder("Recalibrated in " + elapsedMillis + " ms, words moved: " + moved
+                + ", hardness limits:");
+        for (double limit : calibrator.getBoundaries()) {
+            line.append(String.format(" %.2f", limit));
+        }
+        line.append(", bucket sizes:");
+        for (int d = 0; d < after.getNumDifficulties(); d++) {
+            line.append(' ').append(before.size(d)).append("->").append(after.size(d));
+        }
+        System.out.println(line);
+    }
+
+    /**
+     * Plays games games on pool and returns their totals
+     * 
+     * @param games
+     * @param pool
+     * @return
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public SimulationStats run(int games, ForkJoinPool pool) throws InterruptedException, ExecutionException {
+        // load the corpus before the clock starts
+        FileInterfacer.getCorpus();
+        long start = System.nanoTime();
+        // A parallel stream run from inside pool splits its work over pool's threads
+        SimulationStats stats = pool.submit(() -> IntStream.range(0, games).parallel().collect(
+                () -> new SimulationStats(playersPerGame, wordsPerPlayer),
+                (SimulationStats partial, int i) -> partial.add(playGame()), SimulationStats::combine)).get();
+        stats.setElapsedNanos(System.nanoTime() - start);
+        return stats;
+    }
+
+    /**
+     * Plays one game to the end on the calling thread
+     * 
+     * @return
+     */
+    public Game playGame() {
+        Player[] players = new Player[playersPerGame];
+        for (int i = 0; i < playersPerGame; i++) {
+            players[i] = new Player("Bot " + (i + 1), i);
+        }
+        int numWords = wordsPerPlayer * playersPerGame;
+        Word[] words = Double.isNaN(targetFrequency) ? FileInterfacer.getRandomWords(difficulty, numWords)
+                : FileInterfacer.getWordsNearFrequency(targetFrequency, spread, numWords);
+        Game game = new Game(difficulty, words, wordsPerPlayer, players, lives);
+        game.setScoringPolicy(scoringPolicy);
+        if (calibrator != null) {
+            game.addListener(calibrator);
+        }
+        game.runGame(bot);
+        return game;
+    }
+}
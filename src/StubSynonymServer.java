@@ -0,0 +1,135 @@
+
+/**
+ * Local stand-in for the WordsAPI synonym endpoint, used to exercise the hint
+ * code without network access. Every word gets made up synonyms(the word
+ * spelled backwards, then a phrase containing the word) after an optional
+ * delay.
+ *
+ * Running main starts the stub, points APIInterfacer at it and looks up hints
+ * for corpus words, printing the cache hit rate and lookup latency.
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StubSynonymServer {
+    // Constants
+    private static final String PATH_PREFIX = "/words/";
+    private static final String PATH_SUFFIX = "/synonyms";
+
+    private final HttpServer server;
+    private final long delayMillis;
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * Binds to port on localhost(0 picks a free port). Every response is delayed
+     * by delayMillis
+     * 
+     * @param port
+     * @param delayMillis
+     * @throws IOException
+     */
+    public StubSynonymServer(int port, long delayMillis) throws IOException {
+        this.delayMillis = delayMillis;
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext(PATH_PREFIX, this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Returns the url to hand to APIInterfacer.setBaseUrl
+     * 
+     * @return
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH_PREFIX;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Answers like WordsAPI: {"word":"w","synonyms":["...","..."]}
+     * 
+     * @param exchange
+     * @throws IOException
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        String path = exchange.getRequestURI().getPath();
+        String word = path.endsWith(PATH_SUFFIX)
+                ? path.substring(PATH_PREFIX.length(), path.length() - PATH_SUFFIX.length())
+                : "";
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        String reversed = new StringBuilder(word).reverse().toString();
+        String body = "{\"word\":\"" + word + "\",\"synonyms\":[\"" + reversed + "\",\"" + word + " alike\"]}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(word.isEmpty() ? 404 : 200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Arguments: number of lookups, server delay in ms, distinct words to pick from
+     * 
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 5;
+        int distinct = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        StubSynonymServer stub = new StubSynonymServer(0, delay);
+        stub.start();
+        APIInterfacer.setBaseUrl(stub.getBaseUrl());
+
+        // not the default service, whose store would keep the made up hints
+        HintService service = new HintService(HintService::fetchRankedHint, distinct, 60 * 60 * 1000);
+        Word[] words = FileInterfacer.getRandomWords(1, distinct);
+        LatencyHistogram lookupLatency = new LatencyHistogram();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[lookups];
+        for (int i = 0; i < lookups; i++) {
+            // squaring skews picks towards the front, so some words are popular
+            double r = ThreadLocalRandom.current().nextDouble();
+            String word = words[(int) (r * r * distinct)].getWordString();
+            long start = System.nanoTime();
+            futures[i] = service.getHintAsync(word)
+                    .thenRun(() -> lookupLatency.record(System.nanoTime() - start));
+        }
+        CompletableFuture.allOf(futures).join();
+        stub.stop();
+
+        System.out.println("Lookups: " + lookups + ", server requests: " + stub.getRequestCount());
+        System.out.printf("Hit rate: %.3f, coalesced: %d%n", service.getHitRate(), service.getCoalesced());
+        System.out.println("Lookup latency " + lookupLatency);
+        System.out.println("Fetch latency " + service.getFetchLatency());
+        System.exit(0);
+    }
+}
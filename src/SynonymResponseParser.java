@@ -0,0 +1,105 @@
+
+/**
+ * Reads lists out of WordsAPI responses as the body streams in, without
+ * buffering the whole body. Reading stops as soon as the wanted list has been
+ * read, the caller closes the stream to abandon the rest.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SynonymResponseParser {
+
+    /**
+     * Returns the strings in the top level array named field, such as "synonyms".
+     * Returns an empty list if there is no such array
+     * 
+     * @param body
+     * @param field
+     * @param max   stop after this many strings
+     * @return
+     * @throws IOException
+     */
+    public static List<String> readStrings(InputStream body, String field, int max) throws IOException {
+        return readList(body, field, null, max);
+    }
+
+    /**
+     * Returns, for each object in the top level array named field, the string
+     * member named member. Used for {"definitions":[{"definition":"..."}]}
+     * 
+     * @param body
+     * @param field
+     * @param member
+     * @param max
+     * @return
+     * @throws IOException
+     */
+    public static List<String> readMembers(InputStream body, String field, String member, int max)
+            throws IOException {
+        return readList(body, field, member, max);
+    }
+
+    private static List<String> readList(InputStream body, String field, String member, int max)
+            throws IOException {
+        ArrayList<String> retVar = new ArrayList<String>();
+        JsonTokenizer tokenizer = new JsonTokenizer(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (tokenizer.next() != JsonTokenizer.Token.BEGIN_OBJECT) {
+            return retVar;
+        }
+
+        // Looks for the field among the top level members, skipping the rest
+        while (true) {
+            JsonTokenizer.Token token = tokenizer.next();
+            if (token != JsonTokenizer.Token.NAME) {
+                return retVar; // end of the object, field was not there
+            }
+            boolean wanted = tokenizer.textEquals(field);
+            token = tokenizer.next();
+            if (wanted && token == JsonTokenizer.Token.BEGIN_ARRAY) {
+                break;
+            }
+            tokenizer.skipValue(token);
+        }
+
+        while (retVar.size() < max) {
+            JsonTokenizer.Token token = tokenizer.next();
+            if (token == JsonTokenizer.Token.END_ARRAY || token == JsonTokenizer.Token.END_DOCUMENT) {
+                break;
+            }
+            if (member == null && token == JsonTokenizer.Token.STRING) {
+                retVar.add(tokenizer.getText());
+            } else if (member != null && token == JsonTokenizer.Token.BEGIN_OBJECT) {
+                String value = readMember(tokenizer, member);
+                if (value != null) {
+                    retVar.add(value);
+                }
+            } else {
+                tokenizer.skipValue(token);
+            }
+        }
+        return retVar;
+    }
+
+    // Reads an object up to its end and returns the string member named member
+    private static String readMember(JsonTokenizer tokenizer, String member) throws IOException {
+        String retVar = null;
+        while (true) {
+            JsonTokenizer.Token token = tokenizer.next();
+            if (token != JsonTokenizer.Token.NAME) {
+                return retVar;
+            }
+            boolean wanted = tokenizer.textEquals(member);
+            token = tokenizer.next();
+            if (wanted && token == JsonTokenizer.Token.STRING) {
+                retVar = tokenizer.getText();
+            } else {
+                tokenizer.skipValue(token);
+            }
+        }
+    }
+}
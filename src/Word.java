@@ -2,16 +2,18 @@
 /**
  * Container for storing properties of a Word: word, frequency, similarTo
  * Also has derived "helper" properties and helper methods
+ *
+ * Kept small since large corpora create many of them: the chars are only held
+ * by the String, and positions are only stored for letters the word has.
+ * Corpora that must not hold a Word per entry, see CompactWordCorpus, create
+ * them when asked for instead.
  */
 
-import java.util.Arrays;
-import java.util.HashSet;
-
 public class Word implements Comparable<Word> {
     // Constants
-    private static final Character[] LETTERS = new Character[] { 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k',
-            'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z' };
-    private static final HashSet<Character> LETTERS_SET = new HashSet<Character>(Arrays.asList(LETTERS));
+    public static final int NUM_LETTERS = 26; // only 'a' - 'z' have to be guessed
+    public static final int MAX_LENGTH = 64; // one bit per position in a long
+    public static final int BASE_SCORE_MULTIPLIER = ClassicScoring.SCORE_MULTIPLIER;
 
     // Required immutable properties
     private String word;
@@ -21,28 +23,51 @@ public class Word implements Comparable<Word> {
     private String similarTo;
 
     // Derived "helper" immutable properties
-    private int wordLength;
     private int wordLengthOnlyLetters; // some words could have punctuation/numbers
-    private char[] charArray;
+    private int letterMask; // bit i is set if the word contains letter 'a' + i
+    // for each letter in letterMask, in order, bit j is set if it is at position j
+    private long[] positionMasks;
+    private int baseScore; // BASE_SCORE_MULTIPLIER / frequency, worked out once
 
     // Sets required properties and derives helper properties
     public Word(String word, double frequency) {
+        if (word.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Words can have at most " + MAX_LENGTH + " characters: " + word);
+        }
         this.word = word;
         this.frequency = frequency;
-        this.wordLength = word.length();
-        this.charArray = new char[wordLength];
+        // Less frequent words should have a higher score
+        this.baseScore = (int) (BASE_SCORE_MULTIPLIER / frequency);
 
-        // calculating wordLengthOnlyLetters
-        for (int i = 0; i < wordLength; i++) {
-            char c = word.charAt(i);
-            charArray[i] = c;
-            if (LETTERS_SET.contains(c)) {
+        // calculating wordLengthOnlyLetters and the masks
+        for (int i = 0; i < word.length(); i++) {
+            int bit = letterBit(word.charAt(i));
+            if (bit != 0) {
                 this.wordLengthOnlyLetters++;
+                this.letterMask |= bit;
+            }
+        }
+        this.positionMasks = new long[Integer.bitCount(letterMask)];
+        for (int i = 0; i < word.length(); i++) {
+            int bit = letterBit(word.charAt(i));
+            if (bit != 0) {
+                this.positionMasks[rankOf(bit)] |= 1L << i;
             }
         }
 
     }
 
+    /**
+     * Returns the bit representing c in a letter mask, or 0 if c is not a letter
+     * that can be guessed
+     * 
+     * @param c
+     * @return
+     */
+    public static int letterBit(char c) {
+        return c >= 'a' && c <= 'z' ? 1 << (c - 'a') : 0;
+    }
+
     @Override
     public String toString() {
         return "{Word: " + word + " | Similar To: " + similarTo + " | Frequency: " + frequency + "}";
@@ -75,11 +100,11 @@ public class Word implements Comparable<Word> {
     }
 
     public char[] getWordCharArray() {
-        return charArray.clone();
+        return word.toCharArray();
     }
 
     public int getWordLength(boolean totalLength) {
-        return totalLength ? wordLength : wordLengthOnlyLetters;
+        return totalLength ? word.length() : wordLengthOnlyLetters;
     }
 
     public String getSimilarTo() {
@@ -90,59 +115,92 @@ public class Word implements Comparable<Word> {
         return frequency;
     }
 
-    // Setter for similarTo when hint is required
+    /**
+     * Returns BASE_SCORE_MULTIPLIER divided by the frequency, rounded down. Used
+     * by ClassicScoring
+     * 
+     * @return
+     */
+    public int getBaseScore() {
+        return baseScore;
+    }
+
+    public int getLetterMask() {
+        return letterMask;
+    }
+
+    /**
+     * Returns a mask with bit i set if c is at position i. Always 0 for chars that
+     * are not letters
+     * 
+     * @param c
+     * @return
+     */
+    public long getPositionMask(char c) {
+        int bit = letterBit(c);
+        return (letterMask & bit) == 0 ? 0 : positionMasks[rankOf(bit)];
+    }
+
+    // Setter for similarTo when hint is required, usually already prefetched
     public void setSimilarTo() {
-        this.similarTo = APIInterfacer.getSimilar(word);
+        this.similarTo = HintService.getDefault().getHint(word);
     }
 
     /**
-     * Returns the number of occurrences of a char in a string.
+     * Returns the number of occurrences of a letter in the word. Always 0 for
+     * chars that are not letters
      * 
      * @param guessedChar
      * @return
      */
     public int returnOccurrencesOfChar(char guessedChar) {
-        int retVar = 0;
-        for (int i = 0; i < wordLength; i++) {
-            char currChar = charArray[i];
-            if (currChar == guessedChar) {
-                retVar++;
-            }
-        }
-
-        return retVar;
+        return Long.bitCount(getPositionMask(guessedChar));
     }
 
     /**
-     * Calculates the number of letters not in the HashSet
+     * Calculates the number of letters not in the guessed mask
      * 
-     * @param guessedChars
+     * @param guessedMask
      * @return
      */
-    public int getCharsRemaining(HashSet<Character> guessedChars) {
+    public int getCharsRemaining(int guessedMask) {
         int retVar = wordLengthOnlyLetters;
-        for (char c : guessedChars) {
-            retVar -= returnOccurrencesOfChar(c);
+        // only letters that are both guessed and in the word matter
+        int found = guessedMask & letterMask;
+        while (found != 0) {
+            retVar -= Long.bitCount(positionMasks[rankOf(Integer.lowestOneBit(found))]);
+            found &= found - 1;
         }
         return retVar;
     }
 
+    /**
+     * Returns true if every letter of the word is in the guessed mask
+     * 
+     * @param guessedMask
+     * @return
+     */
+    public boolean isSolved(int guessedMask) {
+        return (letterMask & ~guessedMask) == 0;
+    }
+
     /**
      * Calculates new display string(string user will see) based on characters
      * guessed
      * 
-     * @param guessedChars
+     * @param guessedMask
      * @return
      */
-    public String getDisplayString(HashSet<Character> guessedChars) {
+    public String getDisplayString(int guessedMask) {
         // StringBuilder is more efficient when adding repeatedly chars to a String
         StringBuilder retVar = new StringBuilder();
 
-        for (char c : charArray) {
-            // punctuation and numbers is always displayed, if a character is not
-            // punctuation and not number and has
-            // not been guessed then it is a dash
-            retVar.append(LETTERS_SET.contains(c) && !guessedChars.contains(c) ? '_' : c);
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            // punctuation and numbers is always displayed, if a character is a letter
+            // and has not been guessed then it is a dash
+            int bit = letterBit(c);
+            retVar.append(bit != 0 && (guessedMask & bit) == 0 ? '_' : c);
             retVar.append(' ');
         }
         // removing the additional trailing space
@@ -152,16 +210,17 @@ public class Word implements Comparable<Word> {
     }
 
     /**
-     * If a character is in a word, returns true
+     * If a letter is in a word, returns true
      * 
      * @param letter
      * @return
      */
     public boolean hasChar(char letter) {
-        for (char c : charArray) {
-            if (c == letter)
-                return true;
-        }
-        return false;
+        return (letterMask & letterBit(letter)) != 0;
+    }
+
+    // Index into positionMasks of the letter with bit, which must be in letterMask
+    private int rankOf(int bit) {
+        return Integer.bitCount(letterMask & (bit - 1));
     }
 }
@@ -0,0 +1,45 @@
+
+/**
+ * Read-only view over every word available for gameplay, grouped into
+ * difficulty buckets. Difficulty 0 holds the most frequent(easiest) words.
+ */
+
+public interface WordCorpus {
+
+    /**
+     * Returns how many difficulty buckets this corpus has
+     * 
+     * @return
+     */
+    int getNumDifficulties();
+
+    /**
+     * Returns how many words are stored in the given difficulty bucket
+     * 
+     * @param difficulty
+     * @return
+     */
+    int size(int difficulty);
+
+    /**
+     * Returns the word at the given index of the given difficulty bucket. Words in
+     * a bucket keep the order of their source file
+     * 
+     * @param difficulty
+     * @param index
+     * @return
+     */
+    Word getWord(int difficulty, int index);
+
+    /**
+     * Returns the frequency of the word at the given index without creating a
+     * Word, for corpora that create them on demand
+     * 
+     * @param difficulty
+     * @param index
+     * @return
+     */
+    default double getFrequency(int difficulty, int index) {
+        return getWord(difficulty, index).getFrequency();
+    }
+}
@@ -0,0 +1,386 @@
+/**
+ * Minimal acyclic word graph(DAWG) over a set of words: a trie whose equal
+ * subtrees, which are mostly shared suffixes, are stored once. Built with
+ * Daciuk's incremental algorithm for sorted input, so the graph is minimal
+ * without ever building the full trie.
+ *
+ * A node cannot hold a frequency since many words end in it, so words are
+ * numbered in alphabetical order instead: every edge knows how many words sort
+ * before the ones reached through it, and the number of a word indexes
+ * frequencies. Pattern queries walk the graph once for every word sharing a
+ * prefix, and skip nodes that have no word of the remaining length.
+ *
+ * Patterns are the same as for CorpusIndex: one char per position, '_' for a
+ * hidden letter. Immutable once built, so one graph can be shared by every
+ * thread.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class WordGraph {
+    // Constants
+    public static final char HIDDEN = CorpusIndex.HIDDEN;
+
+    // Node n's edges are firstEdge[n] to firstEdge[n + 1] - 1, sorted by label
+    private final int[] firstEdge;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] rankOffsets; // words sorting before the first word reached through the edge
+    private final boolean[] terminal; // a word ends at the node
+    private final byte[] minRemaining; // length of the shortest word ending below the node
+    private final byte[] maxRemaining; // length of the longest word ending below the node
+    private final double[] frequencies; // by word number
+    private final int root;
+
+    /**
+     * Node of the graph while it is built. Nodes that have been registered are
+     * never changed again, so they can be compared by their edges
+     */
+    private static class BuildNode {
+        char[] labels = new char[0];
+        BuildNode[] children = new BuildNode[0];
+        boolean terminal;
+        int id = -1; // set once numbered for the final arrays
+
+        BuildNode lastChild() {
+            return children.length == 0 ? null : children[children.length - 1];
+        }
+
+        void addChild(char label, BuildNode child) {
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = label;
+            children[children.length - 1] = child;
+        }
+
+        // Children are already unique, so comparing them by reference is enough
+        @Override
+        public boolean equals(Object obj) {
+            BuildNode o = (BuildNode) obj;
+            if (terminal != o.terminal || !Arrays.equals(labels, o.labels)) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != o.children[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int retVar = (terminal ? 1 : 0) + 31 * Arrays.hashCode(labels);
+            for (BuildNode child : children) {
+                retVar = 31 * retVar + System.identityHashCode(child);
+            }
+            return retVar;
+        }
+    }
+
+    /**
+     * Builds the graph over every word of every difficulty of corpus. A word
+     * found in more than one bucket keeps its frequency from the easiest one
+     *
+     * @param corpus
+     */
+    public WordGraph(WordCorpus corpus) {
+        this(CorpusIndex.allWords(corpus));
+    }
+
+    /**
+     * Builds the graph over words, in any order. Only the first of words with
+     * the same string is kept
+     *
+     * @param words
+     */
+    public WordGraph(Word[] words) {
+        Word[] sortedWords = words.clone();
+        // stable, so the first of equal strings stays first
+        Arrays.sort(sortedWords, (Word o1, Word o2) -> o1.getWordString().compareTo(o2.getWordString()));
+
+        double[] sortedFrequencies = new double[sortedWords.length];
+        int numWords = 0;
+        HashMap<BuildNode, BuildNode> register = new HashMap<BuildNode, BuildNode>();
+        BuildNode buildRoot = new BuildNode();
+        String previous = "";
+        for (Word word : sortedWords) {
+            String current = word.getWordString();
+            if (numWords > 0 && current.equals(previous)) {
+                continue;
+            }
+            int prefix = commonPrefix(previous, current);
+            BuildNode node = buildRoot;
+            for (int i = 0; i < prefix; i++) {
+                node = node.lastChild();
+            }
+            // nothing added later can change the rest of the previous word
+            replaceOrRegister(node, register);
+            for (int i = prefix; i < current.length(); i++) {
+                BuildNode child = new BuildNode();
+                node.addChild(current.charAt(i), child);
+                node = child;
+            }
+            node.terminal = true;
+            sortedFrequencies[numWords++] = word.getFrequency();
+            previous = current;
+        }
+        replaceOrRegister(buildRoot, register);
+        this.frequencies = Arrays.copyOf(sortedFrequencies, numWords);
+
+        // Numbering the nodes children first lets counts be worked out in the same pass
+        ArrayList<BuildNode> order = new ArrayList<BuildNode>();
+        number(buildRoot, order);
+        int numNodes = order.size();
+        int numEdges = 0;
+        for (BuildNode node : order) {
+            numEdges += node.children.length;
+        }
+        firstEdge = new int[numNodes + 1];
+        labels = new char[numEdges];
+        targets = new int[numEdges];
+        rankOffsets = new int[numEdges];
+        terminal = new boolean[numNodes];
+        minRemaining = new byte[numNodes];
+        maxRemaining = new byte[numNodes];
+        int[] wordCounts = new int[numNodes];
+        int edge = 0;
+        for (int n = 0; n < numNodes; n++) {
+            BuildNode node = order.get(n);
+            firstEdge[n] = edge;
+            terminal[n] = node.terminal;
+            int count = node.terminal ? 1 : 0;
+            int min = node.terminal ? 0 : Word.MAX_LENGTH;
+            int max = 0;
+            for (int i = 0; i < node.children.length; i++) {
+                int child = node.children[i].id;
+                labels[edge] = node.labels[i];
+                targets[edge] = child;
+                rankOffsets[edge] = count;
+                count += wordCounts[child];
+                min = Math.min(min, minRemaining[child] + 1);
+                max = Math.max(max, maxRemaining[child] + 1);
+                edge++;
+            }
+            wordCounts[n] = count;
+            minRemaining[n] = (byte) min;
+            maxRemaining[n] = (byte) max;
+        }
+        firstEdge[numNodes] = edge;
+        root = buildRoot.id;
+    }
+
+    /**
+     * Helper function for the constructor. Replaces the last child of node, and
+     * the last children below it, by an equal registered node if there is one,
+     * otherwise registers them
+     *
+     * @param node
+     * @param register
+     */
+    private static void replaceOrRegister(BuildNode node, HashMap<BuildNode, BuildNode> register) {
+        // The last children below node are the rest of the previous word, none of
+        // them registered yet. Deepest first, so children are unique before parents
+        ArrayList<BuildNode> path = new ArrayList<BuildNode>();
+        for (BuildNode child = node.lastChild(); child != null; child = child.lastChild()) {
+            path.add(child);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            BuildNode child = path.get(i);
+            BuildNode parent = i == 0 ? node : path.get(i - 1);
+            BuildNode existing = register.putIfAbsent(child, child);
+            if (existing != null) {
+                parent.children[parent.children.length - 1] = existing;
+            }
+        }
+    }
+
+    /**
+     * Helper function for the constructor. Gives every node below node an id,
+     * children before parents
+     *
+     * @param node
+     * @param order
+     */
+    private static void number(BuildNode node, ArrayList<BuildNode> order) {
+        // Iterative post-order walk, the graph is deep but narrow
+        ArrayList<BuildNode> stack = new ArrayList<BuildNode>();
+        ArrayList<Integer> nextChild = new ArrayList<Integer>();
+        stack.add(node);
+        nextChild.add(0);
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            BuildNode current = stack.get(top);
+            int i = nextChild.get(top);
+            if (i < current.children.length) {
+                nextChild.set(top, i + 1);
+                BuildNode child = current.children[i];
+                if (child.id == -1) {
+                    stack.add(child);
+                    nextChild.add(0);
+                }
+            } else {
+                current.id = order.size();
+                order.add(current);
+                stack.remove(top);
+                nextChild.remove(top);
+            }
+        }
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // Getters
+    public int size() {
+        return frequencies.length;
+    }
+
+    public int getNumNodes() {
+        return terminal.length;
+    }
+
+    public int getNumEdges() {
+        return labels.length;
+    }
+
+    /**
+     * Returns the Word for word with its frequency, or null if it is not in the
+     * graph
+     *
+     * @param word
+     * @return
+     */
+    public Word getWord(CharSequence word) {
+        int rank = indexOf(word);
+        return rank == -1 ? null : new Word(word.toString(), frequencies[rank]);
+    }
+
+    /**
+     * Returns the position of word in alphabetical order among the words of the
+     * graph, or -1 if it is not in the graph
+     *
+     * @param word
+     * @return
+     */
+    public int indexOf(CharSequence word) {
+        int node = root;
+        int rank = 0;
+        for (int i = 0; i < word.length(); i++) {
+            int edge = findEdge(node, word.charAt(i));
+            if (edge == -1) {
+                return -1;
+            }
+            rank += rankOffsets[edge];
+            node = targets[edge];
+        }
+        return terminal[node] ? rank : -1;
+    }
+
+    /**
+     * Returns the words that fit pattern in alphabetical order: every revealed
+     * char is at its position, and every hidden position holds a letter that is
+     * not in excludedMask. With the guessed letters as excludedMask this is the
+     * same as CorpusIndex.filter
+     *
+     * @param pattern
+     * @param excludedMask
+     * @return
+     */
+    public Word[] getMatches(char[] pattern, int excludedMask) {
+        ArrayList<Word> retVar = new ArrayList<Word>();
+        match(root, 0, 0, pattern, excludedMask, new char[pattern.length], retVar);
+        return retVar.toArray(new Word[retVar.size()]);
+    }
+
+    /**
+     * Same as getMatches, without creating the words
+     *
+     * @param pattern
+     * @param excludedMask
+     * @return
+     */
+    public int countMatches(char[] pattern, int excludedMask) {
+        return match(root, 0, 0, pattern, excludedMask, null, null);
+    }
+
+    /**
+     * Helper function for getMatches and countMatches. Walks the edges of node
+     * that fit pattern at position p, and returns the number of words found.
+     * chars and matches are only used if words have to be created
+     *
+     * @param node
+     * @param p
+     * @param rank number of words sorting before the first word below node
+     * @param pattern
+     * @param excludedMask
+     * @param chars
+     * @param matches
+     * @return
+     */
+    private int match(int node, int p, int rank, char[] pattern, int excludedMask, char[] chars,
+            ArrayList<Word> matches) {
+        int remaining = pattern.length - p;
+        if (remaining < minRemaining[node] || remaining > maxRemaining[node]) {
+            return 0;
+        }
+        if (remaining == 0) {
+            // only a terminal node has 0 in its range
+            if (matches != null) {
+                matches.add(new Word(new String(chars), frequencies[rank]));
+            }
+            return 1;
+        }
+
+        char c = pattern[p];
+        if (c != HIDDEN) {
+            int edge = findEdge(node, c);
+            if (edge == -1) {
+                return 0;
+            }
+            if (chars != null) {
+                chars[p] = c;
+            }
+            return match(targets[edge], p + 1, rank + rankOffsets[edge], pattern, excludedMask, chars, matches);
+        }
+
+        int retVar = 0;
+        for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+            int bit = Word.letterBit(labels[edge]);
+            // chars that are not letters are never hidden
+            if (bit == 0 || (excludedMask & bit) != 0) {
+                continue;
+            }
+            if (chars != null) {
+                chars[p] = labels[edge];
+            }
+            retVar += match(targets[edge], p + 1, rank + rankOffsets[edge], pattern, excludedMask, chars, matches);
+        }
+        return retVar;
+    }
+
+    // Returns the edge of node labelled c, or -1
+    private int findEdge(int node, char c) {
+        int low = firstEdge[node];
+        int high = firstEdge[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (labels[mid] < c) {
+                low = mid + 1;
+            } else if (labels[mid] > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,64 @@
+
+/**
+ * PackedWordStore's vector kernel. Loads a whole vector of lane longs, seen as
+ * bytes one word each, and compares every byte at once, so a 256 bit vector
+ * checks 32 words per operation. The mask of matching bytes is already in
+ * candidate order, which leaves nothing to do but shift it into place.
+ *
+ * Kept in its own folder because it needs jdk.incubator.vector to compile and
+ * run(--add-modules jdk.incubator.vector), PackedWordStore loads it by name and
+ * falls back to SWAR without it.
+ */
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorLaneKernel implements PackedWordStore.LaneKernel {
+    // Constants
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+    public VectorLaneKernel() {
+        // the mask of a vector has to fit in one candidates long
+        if (BYTES.length() > Long.SIZE || BYTES.vectorBitSize() != LONGS.vectorBitSize()) {
+            throw new IllegalStateException("Unsupported vector shape " + BYTES);
+        }
+    }
+
+    @Override
+    public int filter(long[][] lanes, int blocks, PackedWordStore.Query query, boolean checkLetters,
+            long[] candidates) {
+        int[] order = query.order;
+        byte[] wanted = query.wanted;
+        byte[] guessed = query.guessed;
+        int revealed = query.revealed;
+        int end = LONGS.loopBound(blocks);
+        for (int block = 0; block < end; block += LONGS.length()) {
+            VectorMask<Byte> match = BYTES.maskAll(true);
+            for (int r = 0; r < revealed && match.anyTrue(); r++) {
+                match = match.and(lane(lanes[order[r]], block).eq(wanted[r]));
+            }
+            for (int h = revealed; h < order.length && match.anyTrue(); h++) {
+                ByteVector lane = lane(lanes[order[h]], block);
+                if (checkLetters) {
+                    match = match.and(lane.compare(VectorOperators.GE, (byte) 'a'))
+                            .and(lane.compare(VectorOperators.LE, (byte) 'z'));
+                }
+                for (int g = 0; g < guessed.length; g++) {
+                    match = match.andNot(lane.eq(guessed[g]));
+                }
+            }
+            // byte j of the vector is word 8 * block + j
+            int firstWord = block << 3;
+            candidates[firstWord >>> 6] |= match.toLong() << (firstWord & 63);
+        }
+        return end;
+    }
+
+    private static ByteVector lane(long[] lane, int block) {
+        return LongVector.fromArray(LONGS, lane, block).reinterpretAsBytes();
+    }
+}